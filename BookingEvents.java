@@ -0,0 +1,234 @@
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Change feed over the booking model. Flight and Customer publish an event for every change
+// they also journal, numbered from 1 in the order it happened, into a fixed ring of recent
+// events. Publishing claims a sequence number with one atomic increment and never waits on
+// subscribers.
+// Each subscriber reads the ring through its own cursor on the delivery executor, in batches of
+// whatever has accumulated, one batch per unit of demand. A subscriber that stops requesting
+// simply falls behind; once the events it still needs have been overwritten it is failed with
+// the oldest sequence still available, and can subscribe again from there.
+// Sequence numbers restart with the process. Recovery rebuilds the model through the same hooks,
+// so the first events after startup describe the restored flights, customers and bookings.
+public class BookingEvents implements Flow.Publisher<List<BookingEvents.Event>> {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    public static final int DEFAULT_MAX_BATCH = 256;
+    // A cached pool rather than the common pool, so a subscriber that blocks in onNext only
+    // holds up its own deliveries
+    private static final BookingEvents live = new BookingEvents(
+            Integer.getInteger("airline.eventBufferSize", DEFAULT_CAPACITY), DEFAULT_MAX_BATCH,
+            Executors.newCachedThreadPool(runnable -> {
+                Thread thread = new Thread(runnable, "booking-events");
+                thread.setDaemon(true);
+                return thread;
+            }));
+
+    public enum Type { FLIGHT_CREATED, FLIGHT_REMOVED, CUSTOMER_REGISTERED, CUSTOMER_REMOVED, BOOKED, CANCELLED }
+
+    // flightNumber is null for customer events and userId for flight events; seats is the
+    // flight's capacity for FLIGHT_CREATED and the tickets booked or cancelled otherwise
+    public record Event(long sequence, Type type, Instant time, String flightNumber, String userId, int seats) {}
+
+    private final AtomicReferenceArray<Event> ring;
+    private final int mask;
+    private final int maxBatch;
+    private final Executor executor;
+    private final AtomicLong lastSequence = new AtomicLong();
+    private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+
+    public BookingEvents(int capacity, int maxBatch, Executor executor) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two");
+        }
+        if (maxBatch <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive");
+        }
+        this.ring = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+        this.maxBatch = maxBatch;
+        this.executor = Objects.requireNonNull(executor);
+    }
+
+    public static BookingEvents live() {
+        return live;
+    }
+
+    // Starts after the latest event
+    @Override
+    public void subscribe(Flow.Subscriber<? super List<Event>> subscriber) {
+        subscribe(subscriber, lastSequence.get() + 1);
+    }
+
+    // Starts at the given sequence, which may still be in the future; a sequence already
+    // overwritten fails the subscription straight away
+    public void subscribe(Flow.Subscriber<? super List<Event>> subscriber, long fromSequence) {
+        Objects.requireNonNull(subscriber);
+        if (fromSequence <= 0) {
+            throw new IllegalArgumentException("Sequence numbers start at 1");
+        }
+        Cursor cursor = new Cursor(subscriber, fromSequence);
+        cursors.add(cursor);
+        cursor.signal();
+    }
+
+    public long getLastSequence() {
+        return lastSequence.get();
+    }
+
+    // The earliest sequence a new subscription can still start from
+    public long getOldestSequence() {
+        return Math.max(1, lastSequence.get() - mask);
+    }
+
+    public int getSubscriberCount() {
+        return cursors.size();
+    }
+
+    // Publishing hooks, called by Flight and Customer where the change is journaled
+    void flightCreated(Flight flight) {
+        publish(Type.FLIGHT_CREATED, flight.getFlightNumber(), null, flight.getTotalSeats());
+    }
+
+    void flightRemoved(Flight flight) {
+        publish(Type.FLIGHT_REMOVED, flight.getFlightNumber(), null, 0);
+    }
+
+    void customerRegistered(Customer customer) {
+        publish(Type.CUSTOMER_REGISTERED, null, customer.getUserID(), 0);
+    }
+
+    void customerRemoved(Customer customer) {
+        publish(Type.CUSTOMER_REMOVED, null, customer.getUserID(), 0);
+    }
+
+    void booked(Flight flight, Customer customer, int seats) {
+        publish(Type.BOOKED, flight.getFlightNumber(), customer.getUserID(), seats);
+    }
+
+    void cancelled(Flight flight, Customer customer, int seats) {
+        publish(Type.CANCELLED, flight.getFlightNumber(), customer.getUserID(), seats);
+    }
+
+    private void publish(Type type, String flightNumber, String userId, int seats) {
+        long sequence = lastSequence.incrementAndGet();
+        ring.set((int) sequence & mask, new Event(sequence, type, Instant.now(), flightNumber, userId, seats));
+        // Idle subscribers without demand cost nothing here; they catch up when they request
+        for (Cursor cursor : cursors) {
+            if (cursor.demand.get() > 0) {
+                cursor.signal();
+            }
+        }
+    }
+
+    private final class Cursor implements Flow.Subscription, Runnable {
+        final Flow.Subscriber<? super List<Event>> subscriber;
+        final AtomicLong demand = new AtomicLong();
+        final AtomicInteger signals = new AtomicInteger();
+        volatile Throwable failure;
+        volatile boolean cancelled;
+        boolean subscribed;
+        long next;
+
+        Cursor(Flow.Subscriber<? super List<Event>> subscriber, long next) {
+            this.subscriber = subscriber;
+            this.next = next;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("Demand must be positive");
+            } else if (demand.getAndAccumulate(n, (current, added) ->
+                    current + added < 0 ? Long.MAX_VALUE : current + added) > 0) {
+                return; // already draining or due to be signalled by the next event
+            }
+            signal();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            cursors.remove(this);
+        }
+
+        // Only one delivery task runs per cursor; signals that arrive meanwhile make it loop
+        void signal() {
+            if (signals.getAndIncrement() == 0) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    cancel();
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = signals.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        private void drain() {
+            try {
+                if (!subscribed) {
+                    subscribed = true;
+                    subscriber.onSubscribe(this);
+                }
+                while (!cancelled) {
+                    if (failure != null) {
+                        fail(failure);
+                        return;
+                    }
+                    if (demand.get() == 0) {
+                        return;
+                    }
+                    List<Event> batch = read();
+                    if (batch == null) {
+                        fail(new IllegalStateException("Subscriber fell behind; events from sequence "
+                                + getOldestSequence() + " are still available"));
+                        return;
+                    }
+                    if (batch.isEmpty()) {
+                        return;
+                    }
+                    next += batch.size();
+                    demand.decrementAndGet();
+                    subscriber.onNext(batch);
+                }
+            } catch (RuntimeException e) {
+                fail(e);
+            }
+        }
+
+        // Events from next onwards up to the first not yet written; null once next was overwritten
+        private List<Event> read() {
+            List<Event> batch = new ArrayList<>((int) Math.max(0, Math.min(maxBatch, lastSequence.get() - next + 1)));
+            for (long sequence = next; batch.size() < maxBatch; sequence++) {
+                Event event = ring.get((int) sequence & mask);
+                if (event == null || event.sequence() < sequence) {
+                    break; // claimed but not written yet; its publisher signals once it is
+                }
+                if (event.sequence() > sequence) {
+                    return null;
+                }
+                batch.add(event);
+            }
+            return batch;
+        }
+
+        private void fail(Throwable error) {
+            if (!cancelled) {
+                cancel();
+                subscriber.onError(error);
+            }
+        }
+    }
+}
@@ -0,0 +1,530 @@
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32C;
+
+// Append-only log of flights, registrations, profile changes, bookings and cancellations, plus
+// flights archived or cancelled and accounts deleted.
+// Callers append without blocking; a single writer thread drains everything queued so far,
+// writes it through one buffer and forces it with one fsync (group commit).
+// A snapshot rotates the log into a previous segment, which is deleted once the snapshot is durable.
+public class BookingJournal implements AutoCloseable {
+    private static final int MAGIC = 0x424B4A31; // "BKJ1"
+    private static final int FILE_HEADER_SIZE = Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2; // length + checksum
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    private static final int BUFFER_SIZE = 4 << 20;
+    private static final int MAX_BATCH = 8192;
+
+    private static final byte FLIGHT = 1;
+    private static final byte REGISTRATION = 2;
+    private static final byte BOOKING = 3;
+    private static final byte CANCELLATION = 4;
+    private static final byte ARCHIVAL = 5;
+    private static final byte FLIGHT_CANCELLATION = 6;
+    private static final byte REMOVAL = 7;
+    private static final byte PROFILE = 8;
+
+    private enum Kind { RECORD, SYNC, ROTATE, CLOSE }
+
+    private record Entry(Kind kind, byte[] record, CompletableFuture<Void> done) {}
+
+    private static final Entry CLOSE = new Entry(Kind.CLOSE, null, null);
+    private static volatile BookingJournal active;
+
+    private final Path path;
+    private final Path previousSegment;
+    private FileChannel channel; // owned by the writer thread once started
+    private final BlockingQueue<Entry> pending = new LinkedBlockingQueue<>();
+    private final Thread writer;
+    private final long replayedRecords;
+    private final long skippedRecords;
+    private volatile boolean closed;
+
+    private BookingJournal(Path path, FileChannel channel, long replayedRecords, long skippedRecords) {
+        this.path = path;
+        this.previousSegment = previousSegmentOf(path);
+        this.channel = channel;
+        this.replayedRecords = replayedRecords;
+        this.skippedRecords = skippedRecords;
+        this.writer = new Thread(this::writeLoop, "booking-journal-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    // Replays an existing journal (previous segment first) into Flight and Customer,
+    // then starts journaling new changes
+    public static synchronized BookingJournal open(Path path) throws IOException {
+        if (active != null) {
+            throw new IllegalStateException("A booking journal is already open");
+        }
+        long[] counts = {0, 0};
+        Path previous = previousSegmentOf(path);
+        if (Files.exists(previous)) {
+            try (FileChannel previousChannel = FileChannel.open(previous,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                counts = replay(previousChannel);
+            }
+        }
+
+        FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            long[] current = replay(channel);
+            BookingJournal journal = new BookingJournal(path, channel,
+                    counts[0] + current[0], counts[1] + current[1]);
+            active = journal;
+            return journal;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public static Optional<BookingJournal> active() {
+        return Optional.ofNullable(active);
+    }
+
+    public long getReplayedRecords() { return replayedRecords; }
+    public long getSkippedRecords() { return skippedRecords; }
+
+    // Recording hooks, called by the model while it holds the affected customer's monitor
+    static void recordFlight(Flight flight) {
+        BookingJournal journal = active;
+        if (journal != null) {
+            journal.append(encode(FLIGHT, flight.getFlightNumber(), flight.getFromCity(), flight.getToCity(),
+                    flight.getGate(), flight.getDepartureTime().toEpochSecond(ZoneOffset.UTC),
+                    flight.getFlightDuration().toMinutes(), flight.getTotalSeats()));
+        }
+    }
+
+    static void recordRegistration(Customer customer) {
+        BookingJournal journal = active;
+        if (journal != null) {
+            journal.append(encode(REGISTRATION, customer.getUserID(), customer.getName(), customer.getEmail(),
+                    customer.getPasswordHash(), customer.getPhone(), customer.getAddress(), customer.getAge()));
+        }
+    }
+
+    // Replayed in order with registrations, so an address one customer gives up can be taken
+    // by a later registration
+    static void recordProfile(Customer customer) {
+        BookingJournal journal = active;
+        if (journal != null) {
+            journal.append(encode(PROFILE, customer.getUserID(), customer.getName(), customer.getEmail(),
+                    customer.getPhone(), customer.getAddress()));
+        }
+    }
+
+    // Bookings and cancellations are journaled before they are applied, tagged with the booking
+    // version the change will give the customer; false once the journal is closed, and the
+    // caller then leaves the model as it was
+    static boolean recordBooking(Flight flight, Customer customer, int seats, long bookingVersion) {
+        BookingJournal journal = active;
+        return journal == null || journal.offer(encode(BOOKING, flight.getFlightNumber(), customer.getUserID(),
+                seats, bookingVersion));
+    }
+
+    static boolean recordCancellation(Flight flight, Customer customer, int seats, long bookingVersion) {
+        BookingJournal journal = active;
+        return journal == null || journal.offer(encode(CANCELLATION, flight.getFlightNumber(), customer.getUserID(),
+                seats, bookingVersion));
+    }
+
+    // Written after the archived flight has been unwound from its passengers' itineraries;
+    // the departure tells it apart from a later flight reusing the number
+    static void recordArchival(Flight flight) {
+        BookingJournal journal = active;
+        if (journal != null) {
+            journal.append(encode(ARCHIVAL, flight.getFlightNumber(),
+                    flight.getDepartureTime().toEpochSecond(ZoneOffset.UTC)));
+        }
+    }
+
+    static void recordFlightCancellation(Flight flight) {
+        BookingJournal journal = active;
+        if (journal != null) {
+            journal.append(encode(FLIGHT_CANCELLATION, flight.getFlightNumber(),
+                    flight.getDepartureTime().toEpochSecond(ZoneOffset.UTC)));
+        }
+    }
+
+    // Written after the customer's cancellations, which replay on their own
+    static void recordRemoval(Customer customer) {
+        BookingJournal journal = active;
+        if (journal != null) {
+            journal.append(encode(REMOVAL, customer.getUserID()));
+        }
+    }
+
+    // Blocks until everything this thread has journaled so far is on disk
+    public static void sync() {
+        BookingJournal journal = active;
+        if (journal == null) {
+            return;
+        }
+        try {
+            journal.flush().join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof UncheckedIOException io ? io : e;
+        }
+    }
+
+    public CompletableFuture<Void> flush() {
+        return enqueueMarker(Kind.SYNC);
+    }
+
+    // Completes once everything journaled so far sits in the previous segment and new
+    // records go to a fresh file; a snapshot captured after this point covers that segment
+    public CompletableFuture<Void> rotate() {
+        return enqueueMarker(Kind.ROTATE);
+    }
+
+    public void discardPreviousSegment() throws IOException {
+        Files.deleteIfExists(previousSegment);
+    }
+
+    private CompletableFuture<Void> enqueueMarker(Kind kind) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (closed) {
+            done.completeExceptionally(new IllegalStateException("Booking journal is closed"));
+        } else {
+            pending.add(new Entry(kind, null, done));
+        }
+        return done;
+    }
+
+    private void append(byte[] record) {
+        if (!offer(record)) {
+            throw new IllegalStateException("Booking journal is closed");
+        }
+    }
+
+    private boolean offer(byte[] record) {
+        if (closed) {
+            return false;
+        }
+        pending.add(new Entry(Kind.RECORD, record, null));
+        return true;
+    }
+
+    private static Path previousSegmentOf(Path path) {
+        return path.resolveSibling(path.getFileName() + ".1");
+    }
+
+    @Override
+    public void close() {
+        synchronized (BookingJournal.class) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (active == this) {
+                active = null;
+            }
+        }
+        pending.add(CLOSE);
+        try {
+            writer.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Writer thread
+    private void writeLoop() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        List<Entry> batch = new ArrayList<>(MAX_BATCH);
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(pending.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            pending.drainTo(batch, MAX_BATCH - 1);
+
+            IOException failure = null;
+            try {
+                for (Entry entry : batch) {
+                    switch (entry.kind()) {
+                        case RECORD -> {
+                            if (buffer.remaining() < entry.record().length) {
+                                writeFully(buffer);
+                            }
+                            buffer.put(entry.record());
+                        }
+                        case ROTATE -> {
+                            writeFully(buffer);
+                            channel.force(false);
+                            rotateSegment();
+                        }
+                        case CLOSE -> running = false;
+                        case SYNC -> { }
+                    }
+                }
+                writeFully(buffer);
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+            }
+
+            for (Entry entry : batch) {
+                if (entry.done() == null) {
+                    continue;
+                }
+                if (failure == null) {
+                    entry.done().complete(null);
+                } else {
+                    entry.done().completeExceptionally(new UncheckedIOException(failure));
+                }
+            }
+            batch.clear();
+        }
+    }
+
+    private void rotateSegment() throws IOException {
+        if (Files.exists(previousSegment)) {
+            // An earlier snapshot never finished, so its segment is still needed: append to it
+            try (FileChannel previous = FileChannel.open(previousSegment,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                long position = FILE_HEADER_SIZE;
+                long end = channel.size();
+                while (position < end) {
+                    position += channel.transferTo(position, end - position, previous);
+                }
+                previous.force(false);
+            }
+            channel.truncate(FILE_HEADER_SIZE);
+            channel.position(FILE_HEADER_SIZE);
+            channel.force(false);
+        } else {
+            channel.close();
+            Files.move(path, previousSegment, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            writeHeader(channel);
+        }
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).flip();
+        while (header.hasRemaining()) {
+            channel.write(header, header.position());
+        }
+        channel.position(FILE_HEADER_SIZE);
+    }
+
+    private void writeFully(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    // Record encoding: [length][crc32c][type][fields...], strings as unsigned-short length + UTF-8
+    private static byte[] encode(byte type, Object... fields) {
+        byte[][] strings = new byte[fields.length][];
+        int bodySize = 1;
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i] instanceof String text) {
+                strings[i] = text.getBytes(StandardCharsets.UTF_8);
+                bodySize += Short.BYTES + strings[i].length;
+            } else if (fields[i] instanceof Long) {
+                bodySize += Long.BYTES;
+            } else {
+                bodySize += Integer.BYTES;
+            }
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_SIZE + bodySize);
+        record.putInt(bodySize).putInt(0).put(type);
+        for (int i = 0; i < fields.length; i++) {
+            if (strings[i] != null) {
+                if (strings[i].length > 0xFFFF) {
+                    throw new IllegalArgumentException("Journal field too long");
+                }
+                record.putShort((short) strings[i].length).put(strings[i]);
+            } else if (fields[i] instanceof Long value) {
+                record.putLong(value);
+            } else {
+                record.putInt((Integer) fields[i]);
+            }
+        }
+        record.putInt(Integer.BYTES, checksum(record.array(), RECORD_HEADER_SIZE, bodySize));
+        return record.array();
+    }
+
+    private static String getString(ByteBuffer body) {
+        byte[] bytes = new byte[Short.toUnsignedInt(body.getShort())];
+        body.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int checksum(byte[] bytes, int offset, int length) {
+        CRC32C crc = new CRC32C();
+        crc.update(bytes, offset, length);
+        return (int) crc.getValue();
+    }
+
+    // Replay: applies every intact record, then truncates a torn or corrupt tail left by a crash.
+    // Records are idempotent: flights and customers are keyed, bookings carry the customer's
+    // booking version so changes already captured by a snapshot are skipped.
+    private static long[] replay(FileChannel channel) throws IOException {
+        if (channel.size() == 0) {
+            writeHeader(channel);
+            return new long[] {0, 0};
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        channel.position(0);
+        while (buffer.position() < FILE_HEADER_SIZE && channel.read(buffer) >= 0) {
+            continue;
+        }
+        buffer.flip();
+        if (buffer.remaining() < FILE_HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a booking journal");
+        }
+
+        long validEnd = FILE_HEADER_SIZE;
+        long replayed = 0;
+        long skipped = 0;
+        boolean intact = true;
+        while (intact) {
+            buffer.compact();
+            boolean endOfFile = channel.read(buffer) < 0;
+            buffer.flip();
+
+            while (buffer.remaining() >= RECORD_HEADER_SIZE) {
+                int start = buffer.position();
+                int bodySize = buffer.getInt(start);
+                if (bodySize <= 0 || bodySize > MAX_RECORD_SIZE) {
+                    intact = false;
+                    break;
+                }
+                if (buffer.remaining() < RECORD_HEADER_SIZE + bodySize) {
+                    break;
+                }
+                byte[] body = new byte[bodySize];
+                buffer.position(start + RECORD_HEADER_SIZE);
+                buffer.get(body);
+                if (checksum(body, 0, bodySize) != buffer.getInt(start + Integer.BYTES)) {
+                    intact = false;
+                    break;
+                }
+                if (apply(ByteBuffer.wrap(body))) {
+                    replayed++;
+                } else {
+                    skipped++;
+                }
+                validEnd += RECORD_HEADER_SIZE + bodySize;
+            }
+            if (endOfFile) {
+                break;
+            }
+        }
+
+        channel.truncate(validEnd);
+        channel.position(validEnd);
+        return new long[] {replayed, skipped};
+    }
+
+    private static boolean apply(ByteBuffer body) {
+        try {
+            switch (body.get()) {
+                case FLIGHT -> {
+                    String flightNumber = getString(body);
+                    String fromCity = getString(body);
+                    String toCity = getString(body);
+                    String gate = getString(body);
+                    LocalDateTime departure = LocalDateTime.ofEpochSecond(body.getLong(), 0, ZoneOffset.UTC);
+                    Duration duration = Duration.ofMinutes(body.getLong());
+                    int totalSeats = body.getInt();
+                    if (Flight.findFlight(flightNumber).isPresent()) {
+                        return false;
+                    }
+                    Flight.restore(flightNumber, fromCity, toCity, gate, departure, duration, totalSeats);
+                    return true;
+                }
+                case REGISTRATION -> {
+                    String userId = getString(body);
+                    String name = getString(body);
+                    String email = getString(body);
+                    String passwordHash = getString(body);
+                    String phone = getString(body);
+                    String address = getString(body);
+                    int age = body.getInt();
+                    if (Customer.findCustomer(userId).isPresent()) {
+                        return false;
+                    }
+                    Customer.addCustomer(new Customer(userId, name, email, passwordHash, phone, address, age));
+                    return true;
+                }
+                case PROFILE -> {
+                    Optional<Customer> customer = Customer.findCustomer(getString(body));
+                    String name = getString(body);
+                    String email = getString(body);
+                    String phone = getString(body);
+                    String address = getString(body);
+                    if (customer.isEmpty()) {
+                        return false;
+                    }
+                    customer.get().updateProfile(name, email, phone, address);
+                    return true;
+                }
+                case BOOKING, CANCELLATION -> {
+                    body.position(0);
+                    boolean booking = body.get() == BOOKING;
+                    Optional<Flight> flight = Flight.findFlight(getString(body));
+                    Optional<Customer> customer = Customer.findCustomer(getString(body));
+                    int seats = body.getInt();
+                    long bookingVersion = body.getLong();
+                    if (flight.isEmpty() || customer.isEmpty()
+                            || customer.get().getBookingVersion() >= bookingVersion) {
+                        return false;
+                    }
+                    return booking
+                            ? flight.get().replayBooking(customer.get(), seats)
+                            : flight.get().replayCancellation(customer.get(), seats);
+                }
+                case ARCHIVAL, FLIGHT_CANCELLATION -> {
+                    body.position(0);
+                    boolean archival = body.get() == ARCHIVAL;
+                    Optional<Flight> flight = Flight.findFlight(getString(body));
+                    long departure = body.getLong();
+                    if (flight.isEmpty()
+                            || flight.get().getDepartureTime().toEpochSecond(ZoneOffset.UTC) != departure) {
+                        return false;
+                    }
+                    return archival
+                            ? Flight.getArchiver().archive(List.of(flight.get())) > 0
+                            : !Flight.cancelFlights(List.of(flight.get())).isEmpty();
+                }
+                case REMOVAL -> {
+                    Optional<Customer> customer = Customer.findCustomer(getString(body));
+                    if (customer.isEmpty() || !Customer.removeCustomer(customer.get())) {
+                        return false;
+                    }
+                    customer.get().markRemoved().forEach((flight, tickets) ->
+                            flight.replayCancellation(customer.get(), tickets));
+                    BookingEvents.live().customerRemoved(customer.get());
+                    return true;
+                }
+                default -> {
+                    return false;
+                }
+            }
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+
+// Ticket counts keyed by flight or customer identity, kept in booking order without boxing.
+// Entries live in dense parallel arrays; an open-addressing table of dense positions gives
+// O(1) lookup. Not thread-safe: Flight and Customer guard their ledgers with a monitor.
+public class BookingLedger<K> {
+    private static final int DEFAULT_CAPACITY = 4;
+    private static final int FREE = 0;
+    private static final int REMOVED = -1;
+
+    private Object[] keys;
+    private int[] tickets;
+    private int[] slots;     // dense position + 1, FREE or REMOVED
+    private int used;        // dense entries written, including removed ones
+    private int size;
+    private int totalTickets;
+
+    public BookingLedger() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public BookingLedger(int expectedSize) {
+        int capacity = Math.max(DEFAULT_CAPACITY, expectedSize);
+        keys = new Object[capacity];
+        tickets = new int[capacity];
+        slots = new int[tableSizeFor(capacity)];
+    }
+
+    private BookingLedger(BookingLedger<K> other) {
+        keys = other.keys.clone();
+        tickets = other.tickets.clone();
+        slots = other.slots.clone();
+        used = other.used;
+        size = other.size;
+        totalTickets = other.totalTickets;
+    }
+
+    public int get(K key) {
+        int slot = findSlot(key);
+        return slot < 0 ? 0 : tickets[slots[slot] - 1];
+    }
+
+    public boolean contains(K key) {
+        return findSlot(key) >= 0;
+    }
+
+    // Adjusts the tickets held for a key and returns the new count; an entry reaching zero is removed
+    public int add(K key, int delta) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int position = slots[slot] - 1;
+            int updated = tickets[position] + delta;
+            if (updated < 0) {
+                throw new IllegalArgumentException("Ticket count cannot go negative");
+            }
+            totalTickets += delta;
+            if (updated == 0) {
+                keys[position] = null;
+                slots[slot] = REMOVED;
+                size--;
+            } else {
+                tickets[position] = updated;
+            }
+            return updated;
+        }
+
+        if (delta < 0) {
+            throw new IllegalArgumentException("Ticket count cannot go negative");
+        }
+        if (delta == 0) {
+            return 0;
+        }
+        if (used == keys.length || (used + 1) * 4 > slots.length * 3) {
+            rebuild();
+        }
+        keys[used] = key;
+        tickets[used] = delta;
+        slots[insertSlot(key)] = ++used;
+        size++;
+        totalTickets += delta;
+        return delta;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int totalTickets() {
+        return totalTickets;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjIntConsumer<? super K> action) {
+        for (int i = 0; i < used; i++) {
+            if (keys[i] != null) {
+                action.accept((K) keys[i], tickets[i]);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<K> keys() {
+        List<K> result = new ArrayList<>(size);
+        for (int i = 0; i < used; i++) {
+            if (keys[i] != null) {
+                result.add((K) keys[i]);
+            }
+        }
+        return result;
+    }
+
+    public BookingLedger<K> copy() {
+        return new BookingLedger<>(this);
+    }
+
+    private int findSlot(Object key) {
+        int mask = slots.length - 1;
+        for (int slot = hash(key) & mask; ; slot = (slot + 1) & mask) {
+            int entry = slots[slot];
+            if (entry == FREE) {
+                return -1;
+            }
+            if (entry != REMOVED && keys[entry - 1] == key) {
+                return slot;
+            }
+        }
+    }
+
+    private int insertSlot(Object key) {
+        int mask = slots.length - 1;
+        int slot = hash(key) & mask;
+        while (slots[slot] > 0) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Drops removed entries, grows the arrays if needed and re-hashes every live key
+    private void rebuild() {
+        int capacity = Math.max(DEFAULT_CAPACITY, size * 2);
+        Object[] liveKeys = new Object[capacity];
+        int[] liveTickets = new int[capacity];
+        int count = 0;
+        for (int i = 0; i < used; i++) {
+            if (keys[i] != null) {
+                liveKeys[count] = keys[i];
+                liveTickets[count] = tickets[i];
+                count++;
+            }
+        }
+        keys = liveKeys;
+        tickets = liveTickets;
+        used = count;
+        slots = new int[tableSizeFor(capacity)];
+        for (int i = 0; i < used; i++) {
+            slots[insertSlot(keys[i])] = i + 1;
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = System.identityHashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        return Integer.highestOneBit(capacity * 2 - 1) * 2;
+    }
+}
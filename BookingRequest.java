@@ -0,0 +1,2 @@
+public record BookingRequest(String flightNumber, int tickets, String userId) {
+}
@@ -0,0 +1,2 @@
+public record BookingResult(BookingRequest request, BookingStatus status) {
+}
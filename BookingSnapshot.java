@@ -0,0 +1,287 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// Point-in-time binary image of every flight, customer and booking.
+// Layout: header, city/gate dictionary, flights, then customers with their bookings as
+// (flight index, tickets) pairs. Strings are unsigned-short length + UTF-8.
+public class BookingSnapshot {
+    private static final int MAGIC = 0x424B5331; // "BKS1"
+    private static final int BUFFER_SIZE = 8 << 20;
+    private static final long WINDOW_SIZE = 256L << 20;
+    private static final Object snapshotLock = new Object();
+
+    public record Stats(int flights, int customers, long bookings, long bytes, Duration elapsed) {
+        @Override
+        public String toString() {
+            return String.format("%d flights, %d customers, %d bookings, %.1f MB in %d ms",
+                    flights, customers, bookings, bytes / (1024.0 * 1024.0), elapsed.toMillis());
+        }
+    }
+
+    private record CustomerImage(Customer customer, long bookingVersion, BookingLedger<Flight> bookings) {}
+
+    // Writes a snapshot while bookings continue. The journal is rotated first, so every record
+    // left in its previous segment is already reflected here and the segment can be dropped.
+    public static Stats write(Path path) throws IOException {
+        synchronized (snapshotLock) {
+            long start = System.nanoTime();
+            Optional<BookingJournal> journal = BookingJournal.active();
+            if (journal.isPresent()) {
+                try {
+                    journal.get().rotate().join();
+                } catch (RuntimeException e) {
+                    throw new IOException("Could not rotate booking journal", e);
+                }
+            }
+
+            // Customers are captured before flights, so every flight they booked is in the flight capture
+            List<CustomerImage> customers = captureCustomers();
+            List<Flight> flights = Flight.snapshotFlights();
+
+            Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+            long bookings;
+            long bytes;
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                ChannelWriter out = new ChannelWriter(channel);
+                bookings = writeImage(out, flights, customers);
+                out.flush();
+                channel.force(true);
+                bytes = channel.size();
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+            if (journal.isPresent()) {
+                journal.get().discardPreviousSegment();
+            }
+            return new Stats(flights.size(), customers.size(), bookings, bytes,
+                    Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    public static CompletableFuture<Stats> writeInBackground(Path path) {
+        CompletableFuture<Stats> result = new CompletableFuture<>();
+        Thread worker = new Thread(() -> {
+            try {
+                result.complete(write(path));
+            } catch (IOException | RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, "booking-snapshot");
+        worker.setDaemon(true);
+        worker.start();
+        return result;
+    }
+
+    private static List<CustomerImage> captureCustomers() {
+        List<Customer> customers = Customer.snapshotCustomers();
+        List<CustomerImage> images = new ArrayList<>(customers.size());
+        for (Customer customer : customers) {
+            synchronized (customer) {
+                images.add(new CustomerImage(customer, customer.getBookingVersion(), customer.getBookings()));
+            }
+        }
+        return images;
+    }
+
+    private static long writeImage(ChannelWriter out, List<Flight> flights,
+                                   List<CustomerImage> customers) throws IOException {
+        Map<String, Integer> dictionary = new LinkedHashMap<>();
+        for (Flight flight : flights) {
+            dictionary.putIfAbsent(flight.getFromCity(), dictionary.size());
+            dictionary.putIfAbsent(flight.getToCity(), dictionary.size());
+            dictionary.putIfAbsent(flight.getGate(), dictionary.size());
+        }
+
+        out.ensure(Integer.BYTES * 4);
+        out.buffer.putInt(MAGIC).putInt(dictionary.size()).putInt(flights.size()).putInt(customers.size());
+        for (String entry : dictionary.keySet()) {
+            out.putString(entry);
+        }
+
+        Map<Flight, Integer> flightIndexes = new IdentityHashMap<>(flights.size() * 2);
+        for (Flight flight : flights) {
+            flightIndexes.put(flight, flightIndexes.size());
+            out.putString(flight.getFlightNumber());
+            out.ensure(Integer.BYTES * 5 + Long.BYTES);
+            out.buffer.putInt(dictionary.get(flight.getFromCity()))
+                    .putInt(dictionary.get(flight.getToCity()))
+                    .putInt(dictionary.get(flight.getGate()))
+                    .putLong(flight.getDepartureTime().toEpochSecond(ZoneOffset.UTC))
+                    .putInt((int) flight.getFlightDuration().toMinutes())
+                    .putInt(flight.getTotalSeats());
+        }
+
+        long bookings = 0;
+        for (CustomerImage image : customers) {
+            Customer customer = image.customer();
+            out.putString(customer.getUserID());
+            out.putString(customer.getName());
+            out.putString(customer.getEmail());
+            out.putString(customer.getPasswordHash());
+            out.putString(customer.getPhone());
+            out.putString(customer.getAddress());
+
+            List<Flight> booked = image.bookings().keys();
+            int bookingCount = 0;
+            for (Flight flight : booked) {
+                if (flightIndexes.containsKey(flight)) {
+                    bookingCount++;
+                }
+            }
+            out.ensure(Integer.BYTES * 2 + Long.BYTES);
+            out.buffer.putInt(customer.getAge()).putLong(image.bookingVersion()).putInt(bookingCount);
+            for (Flight flight : booked) {
+                Integer flightIndex = flightIndexes.get(flight);
+                if (flightIndex != null) {
+                    out.ensure(Integer.BYTES * 2);
+                    out.buffer.putInt(flightIndex).putInt(image.bookings().get(flight));
+                }
+            }
+            bookings += bookingCount;
+        }
+        return bookings;
+    }
+
+    // Loads a snapshot into the empty in-memory model; replay the journal afterwards for later changes
+    public static Stats load(Path path) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedReader in = new MappedReader(channel);
+            in.ensure(Integer.BYTES * 4);
+            if (in.buffer.getInt() != MAGIC) {
+                throw new IOException("Not a booking snapshot");
+            }
+            String[] dictionary = new String[in.buffer.getInt()];
+            Flight[] flights = new Flight[in.buffer.getInt()];
+            int customerCount = in.buffer.getInt();
+
+            for (int i = 0; i < dictionary.length; i++) {
+                dictionary[i] = in.getString();
+            }
+
+            for (int i = 0; i < flights.length; i++) {
+                String flightNumber = in.getString();
+                in.ensure(Integer.BYTES * 5 + Long.BYTES);
+                String fromCity = dictionary[in.buffer.getInt()];
+                String toCity = dictionary[in.buffer.getInt()];
+                String gate = dictionary[in.buffer.getInt()];
+                LocalDateTime departure = LocalDateTime.ofEpochSecond(in.buffer.getLong(), 0, ZoneOffset.UTC);
+                Duration duration = Duration.ofMinutes(in.buffer.getInt());
+                int totalSeats = in.buffer.getInt();
+                flights[i] = Flight.restore(flightNumber, fromCity, toCity, gate, departure, duration, totalSeats);
+            }
+
+            // Bookings bypass the booking path: no journaling and no capacity checks.
+            // Customers are captured one at a time, so a flight may briefly look overbooked
+            // here; replaying the journal's later cancellations settles it.
+            long bookings = 0;
+            for (int i = 0; i < customerCount; i++) {
+                String userId = in.getString();
+                String name = in.getString();
+                String email = in.getString();
+                String passwordHash = in.getString();
+                String phone = in.getString();
+                String address = in.getString();
+                in.ensure(Integer.BYTES * 2 + Long.BYTES);
+                int age = in.buffer.getInt();
+                long bookingVersion = in.buffer.getLong();
+                int bookingCount = in.buffer.getInt();
+
+                Customer customer = new Customer(userId, name, email, passwordHash, phone, address, age);
+                Customer.addCustomer(customer);
+                Flight[] booked = new Flight[bookingCount];
+                int[] tickets = new int[bookingCount];
+                for (int b = 0; b < bookingCount; b++) {
+                    in.ensure(Integer.BYTES * 2);
+                    booked[b] = flights[in.buffer.getInt()];
+                    tickets[b] = in.buffer.getInt();
+                    booked[b].restorePassenger(customer, tickets[b]);
+                }
+                customer.restoreBookings(booked, tickets, bookingVersion);
+                bookings += bookingCount;
+            }
+            return new Stats(flights.length, customerCount, bookings, channel.size(),
+                    Duration.ofNanos(System.nanoTime() - start));
+        }
+    }
+
+    // Buffered sequential writer over a FileChannel
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+        ChannelWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > 0xFFFF) {
+                throw new IllegalArgumentException("Snapshot field too long");
+            }
+            ensure(Short.BYTES + bytes.length);
+            buffer.putShort((short) bytes.length).put(bytes);
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // Sequential reader that maps the file in large windows, so files past 2 GB still load
+    private static final class MappedReader {
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer buffer;
+
+        MappedReader(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.size = channel.size();
+            map(0);
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                long position = windowStart + buffer.position();
+                if (size - position < bytes) {
+                    throw new IOException("Truncated booking snapshot");
+                }
+                map(position);
+            }
+        }
+
+        String getString() throws IOException {
+            ensure(Short.BYTES);
+            int length = Short.toUnsignedInt(buffer.getShort());
+            ensure(length);
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void map(long position) throws IOException {
+            windowStart = position;
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW_SIZE, size - position));
+        }
+    }
+}
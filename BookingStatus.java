@@ -0,0 +1,20 @@
+public enum BookingStatus {
+    BOOKED,
+    SOLD_OUT,
+    INVALID_FLIGHT,
+    INVALID_CUSTOMER,
+    INVALID_TICKETS,
+    CANCELLED,
+    NOT_BOOKED,
+    WAITLISTED,
+    BUSY; // the booking engine's queue stayed full; nothing was changed, so retrying is safe
+
+    // A waitlisted request was accepted; it is booked later as seats free up
+    public boolean isSuccess() {
+        return this == BOOKED || this == CANCELLED || this == WAITLISTED;
+    }
+
+    public boolean isInvalid() {
+        return this == INVALID_FLIGHT || this == INVALID_CUSTOMER || this == INVALID_TICKETS;
+    }
+}
@@ -1,40 +1,71 @@
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Predicate;
+import java.util.regex.Pattern;
 
 public class Customer {
     private static final int MIN_USER_ID = 20000;
     private static final int MAX_AGE = 120;
+    private static final Pattern EMAIL_PATTERN = Pattern.compile("^[\\w-.]+@([\\w-]+\\.)+[\\w-]{2,4}$");
+    private static final Pattern PHONE_PATTERN = Pattern.compile("\\+?[0-9]{10,15}");
 
     private final String userID;
     private String email;
     private String name;
     private String phone;
-    private final String password;
+    private String passwordHash;
     private String address;
     private int age;
-    private final List<Flight> flightsRegisteredByUser;
-    private final List<Integer> numOfTicketsBookedByUser;
+    private final BookingLedger<Flight> bookings = new BookingLedger<>();
+    private long bookingVersion;
+    private boolean removed; // guarded by this customer's monitor
+    private int listSlot = -1; // position in customerCollection, guarded by its monitor
     private static final List<Customer> customerCollection = new ArrayList<>();
+    private static final Map<String, Customer> customerIndex = new ConcurrentHashMap<>();
+    private static final Map<String, Customer> emailIndex = new ConcurrentHashMap<>();
+    private static final AtomicLong nextUserId = new AtomicLong(MIN_USER_ID);
 
     public Customer() {
-        this("", "", "", "", "", 0);
+        this.userID = generateUserId();
     }
 
     public Customer(String name, String email, String password, String phone, String address, int age) {
         this.userID = generateUserId();
         setName(name);
         setEmail(email);
-        this.password = validatePassword(password);
+        this.passwordHash = PasswordHasher.hash(validatePassword(password));
         setPhone(phone);
         setAddress(address);
         setAge(age);
-        this.flightsRegisteredByUser = new ArrayList<>();
-        this.numOfTicketsBookedByUser = new ArrayList<>();
     }
 
-    private String generateUserId() {
-        Random random = new Random();
-        return String.valueOf(random.nextInt(1000000 - MIN_USER_ID) + MIN_USER_ID);
+    // Re-creates a persisted customer with its original ID and stored password hash
+    Customer(String userID, String name, String email, String passwordHash, String phone, String address, int age) {
+        this.userID = userID;
+        setName(name);
+        setEmail(email);
+        this.passwordHash = validatePassword(passwordHash);
+        setPhone(phone);
+        setAddress(address);
+        setAge(age);
+    }
+
+    // IDs come from one sequence, so concurrent registrations never draw the same one
+    private static String generateUserId() {
+        return String.valueOf(nextUserId.getAndIncrement());
+    }
+
+    // Moves the sequence past a numeric ID registered from outside it, e.g. restored from disk
+    private static void reserveUserId(String userID) {
+        try {
+            long id = Long.parseLong(userID);
+            if (id < Long.MAX_VALUE) {
+                nextUserId.accumulateAndGet(id + 1, Math::max);
+            }
+        } catch (NumberFormatException e) {
+            // not from the sequence
+        }
     }
 
     private String validatePassword(String password) {
@@ -54,11 +85,11 @@ public class Customer {
         setEmail(getInput(scanner, "Enter your email: ",
                 this::isEmailUnique, "Email already exists"));
 
-        this.password = getInput(scanner, "Enter your password: ",
-                input -> input.length() >= 8, "Password must be at least 8 characters");
+        this.passwordHash = PasswordHasher.hash(getInput(scanner, "Enter your password: ",
+                input -> input.length() >= 8, "Password must be at least 8 characters"));
 
         setPhone(getInput(scanner, "Enter your phone: ",
-                input -> input.matches("\\+?[0-9]{10,15}"), "Invalid phone number"));
+                input -> PHONE_PATTERN.matcher(input).matches(), "Invalid phone number"));
 
         setAddress(getInput(scanner, "Enter your address: ",
                 input -> true, ""));
@@ -73,10 +104,81 @@ public class Customer {
                     }
                 }, "Age must be between 1-" + MAX_AGE)));
 
-        customerCollection.add(this);
+        long start = System.nanoTime();
+        addCustomer(this);
+        BookingJournal.sync();
+        Metrics.record(Metrics.Operation.REGISTER, start, true);
         System.out.println("Registration successful! Your ID: " + this.userID);
     }
 
+    // Registry methods. Inserts and email changes are serialized on the customer list, so an ID
+    // and address found free stay free until the customer is in. The registration is journaled
+    // and announced before the customer can be found, so no booking by it is ever recorded or
+    // published ahead of it.
+    static void addCustomer(Customer customer) {
+        String email = normalizeEmail(customer.email);
+        synchronized (customerCollection) {
+            if (customerIndex.containsKey(customer.userID)) {
+                throw new IllegalStateException("User ID already registered: " + customer.userID);
+            }
+            if (emailIndex.containsKey(email)) {
+                throw new IllegalStateException("Email already registered: " + customer.email);
+            }
+            BookingJournal.recordRegistration(customer);
+            BookingEvents.live().customerRegistered(customer);
+            customerIndex.put(customer.userID, customer);
+            emailIndex.put(email, customer);
+            customer.listSlot = customerCollection.size();
+            customerCollection.add(customer);
+            reserveUserId(customer.userID);
+        }
+        CustomerSearch.live().added(customer);
+    }
+
+    public static boolean removeCustomer(Customer customer) {
+        synchronized (customerCollection) {
+            if (!customerIndex.remove(customer.userID, customer)) {
+                return false;
+            }
+            emailIndex.remove(normalizeEmail(customer.email), customer);
+            // The last customer takes the removed one's slot, so removal doesn't scan the list
+            Customer last = customerCollection.remove(customerCollection.size() - 1);
+            if (last != customer) {
+                customerCollection.set(customer.listSlot, last);
+                last.listSlot = customer.listSlot;
+            }
+            customer.listSlot = -1;
+        }
+        return true;
+    }
+
+    // Stops any further bookings for a customer already taken out of the registry and returns
+    // the bookings it still holds, which the caller cancels
+    synchronized BookingLedger<Flight> markRemoved() {
+        removed = true;
+        return bookings.copy();
+    }
+
+    public synchronized boolean isRemoved() {
+        return removed;
+    }
+
+    public static Optional<Customer> findCustomer(String userId) {
+        return userId == null ? Optional.empty() : Optional.ofNullable(customerIndex.get(userId.trim()));
+    }
+
+    public static Optional<Customer> findByEmail(String email) {
+        return email == null ? Optional.empty() : Optional.ofNullable(emailIndex.get(normalizeEmail(email)));
+    }
+
+    private boolean isRegistered() {
+        return customerIndex.get(userID) == this;
+    }
+
+    private static String normalizeEmail(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
     private String getInput(Scanner scanner, String prompt,
                             Predicate<String> validator, String errorMsg) {
         while (true) {
@@ -90,29 +192,40 @@ public class Customer {
     }
 
     private boolean isEmailUnique(String email) {
-        return customerCollection.stream()
-                .noneMatch(c -> c.getEmail().equalsIgnoreCase(email));
+        return !emailIndex.containsKey(normalizeEmail(email));
     }
 
-    public void addFlightBooking(Flight flight, int tickets) {
-        int index = findFlightIndex(flight);
-        if (index >= 0) {
-            numOfTicketsBookedByUser.set(index,
-                    numOfTicketsBookedByUser.get(index) + tickets);
-        } else {
-            flightsRegisteredByUser.add(flight);
-            numOfTicketsBookedByUser.add(tickets);
+    public boolean checkPassword(String password) {
+        return PasswordHasher.verify(password, passwordHash);
+    }
+
+    public synchronized void addFlightBooking(Flight flight, int tickets) {
+        if (tickets <= 0) {
+            throw new IllegalArgumentException("Tickets must be positive");
         }
+        bookingVersion++;
+        bookings.add(flight, tickets);
     }
 
-    private int findFlightIndex(Flight flight) {
-        for (int i = 0; i < flightsRegisteredByUser.size(); i++) {
-            if (flightsRegisteredByUser.get(i).getFlightNumber()
-                    .equals(flight.getFlightNumber())) {
-                return i;
-            }
+    // Returns the tickets still held on the flight, or -1 if the booking can't cover the cancellation
+    public synchronized int removeFlightBooking(Flight flight, int tickets) {
+        if (tickets <= 0 || tickets > bookings.get(flight)) {
+            return -1;
         }
-        return -1;
+        bookingVersion++;
+        return bookings.add(flight, -tickets);
+    }
+
+    // Counts booking changes; persisted with snapshots so journal replay can skip what they contain
+    public synchronized long getBookingVersion() {
+        return bookingVersion;
+    }
+
+    synchronized void restoreBookings(Flight[] flights, int[] tickets, long bookingVersion) {
+        for (int i = 0; i < flights.length; i++) {
+            this.bookings.add(flights[i], tickets[i]);
+        }
+        this.bookingVersion = bookingVersion;
     }
 
     // Getters and Setters
@@ -120,35 +233,78 @@ public class Customer {
     public String getEmail() { return email; }
     public String getName() { return name; }
     public String getPhone() { return phone; }
-    public String getPassword() { return password; }
+    public String getPasswordHash() { return passwordHash; }
     public String getAddress() { return address; }
     public int getAge() { return age; }
-    public List<Flight> getFlights() { return Collections.unmodifiableList(flightsRegisteredByUser); }
-    public List<Integer> getTicketsBooked() { return Collections.unmodifiableList(numOfTicketsBookedByUser); }
+    public synchronized int getTicketsFor(Flight flight) { return bookings.get(flight); }
+    public synchronized int getBookingCount() { return bookings.size(); }
+    public synchronized BookingLedger<Flight> getBookings() { return bookings.copy(); }
+    public synchronized List<Flight> getFlights() { return bookings.keys(); }
+
+    public synchronized List<Integer> getTicketsBooked() {
+        List<Integer> tickets = new ArrayList<>(bookings.size());
+        bookings.forEach((flight, count) -> tickets.add(count));
+        return tickets;
+    }
 
     public void setName(String name) {
-        if (name == null || name.trim().isEmpty()) {
-            throw new IllegalArgumentException("Name cannot be empty");
-        }
-        this.name = name.trim();
+        updateProfile(name == null ? "" : name, null, null, null);
     }
 
     public void setEmail(String email) {
-        if (email == null || !email.matches("^[\\w-.]+@([\\w-]+\\.)+[\\w-]{2,4}$")) {
-            throw new IllegalArgumentException("Invalid email format");
-        }
-        this.email = email;
+        updateProfile(null, email == null ? "" : email, null, null);
     }
 
     public void setPhone(String phone) {
-        if (phone == null || !phone.matches("\\+?[0-9]{10,15}")) {
-            throw new IllegalArgumentException("Invalid phone number");
-        }
-        this.phone = phone;
+        updateProfile(null, null, phone == null ? "" : phone, null);
     }
 
     public void setAddress(String address) {
-        this.address = address != null ? address.trim() : "";
+        updateProfile(null, null, null, address != null ? address : "");
+    }
+
+    // Changes contact details as one edit, leaving null fields as they are. Every field is
+    // validated before any is applied. For a registered customer the email index entry moves
+    // with the address, and the edit is journaled and reaches search.
+    public synchronized void updateProfile(String name, String email, String phone, String address) {
+        if (name != null && name.trim().isEmpty()) {
+            throw new IllegalArgumentException("Name cannot be empty");
+        }
+        if (email != null && !EMAIL_PATTERN.matcher(email).matches()) {
+            throw new IllegalArgumentException("Invalid email format");
+        }
+        if (phone != null && !PHONE_PATTERN.matcher(phone).matches()) {
+            throw new IllegalArgumentException("Invalid phone number");
+        }
+        boolean registered = isRegistered();
+        if (email != null && this.email != null && registered) {
+            String previous = normalizeEmail(this.email);
+            String updated = normalizeEmail(email);
+            if (!updated.equals(previous)) {
+                synchronized (customerCollection) {
+                    if (emailIndex.putIfAbsent(updated, this) != null) {
+                        throw new IllegalArgumentException("Email already registered");
+                    }
+                    emailIndex.remove(previous, this);
+                }
+            }
+        }
+        if (name != null) {
+            this.name = name.trim();
+        }
+        if (email != null) {
+            this.email = email;
+        }
+        if (phone != null) {
+            this.phone = phone;
+        }
+        if (address != null) {
+            this.address = address.trim();
+        }
+        if (registered) {
+            BookingJournal.recordProfile(this);
+            CustomerSearch.live().changed(this);
+        }
     }
 
     public void setAge(int age) {
@@ -161,4 +317,11 @@ public class Customer {
     public static List<Customer> getAllCustomers() {
         return Collections.unmodifiableList(customerCollection);
     }
+
+    // Point-in-time copy that is safe to iterate while customers keep registering
+    public static List<Customer> snapshotCustomers() {
+        synchronized (customerCollection) {
+            return new ArrayList<>(customerCollection);
+        }
+    }
 }
\ No newline at end of file
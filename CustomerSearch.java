@@ -0,0 +1,774 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
+
+// Finds customers by partial name, email or phone for the admin console. Each customer is
+// indexed under lower-case tokens: the words of the name, the full email address and the words
+// of its local part, and the phone's digits both forwards and reversed, so a number can be found
+// by its first or last digits. A query matches customers with a token starting with each of its
+// terms, or for words of four letters or more within one typo of it, and results are ranked
+// exact over prefix over fuzzy matches.
+// Most tokens live in an immutable base segment: one sorted dictionary packed into a char array,
+// with each token's customers in a flat array. Registrations and profile changes go into a small
+// concurrent delta, and a background merge rebuilds the base once the delta outgrows a quarter
+// of it. Both are sorted, so a single walk serves exact, prefix and fuzzy lookups on either the
+// way a trie would, and a query costs a few binary searches per dictionary.
+// Tokens a profile change replaces are not removed; customers changed since the base was built
+// are re-checked against their current fields instead, and deleted customers are skipped.
+public class CustomerSearch {
+    public static final int DEFAULT_LIMIT = 10;
+    private static final int MIN_DELTA_POSTINGS = 1 << 16;
+    private static final int MAX_CANDIDATES = 2048;     // postings examined per query
+    private static final int FUZZY_MIN_LENGTH = 4;      // shorter terms only match by prefix
+    private static final char SUFFIX_MARK = '~';        // reversed phone digits; sorts after letters
+    private static final Pattern PHONE_QUERY = Pattern.compile("[+\\d\\s()-]*\\d[+\\d\\s()-]*");
+    private static final CustomerSearch live = new CustomerSearch();
+
+    private record State(Segment base, Delta merging, Delta delta) {
+        List<Dictionary> dictionaries() {
+            return merging == null ? List.of(base, delta) : List.of(base, merging, delta);
+        }
+
+        boolean changedSinceBuild(Customer customer) {
+            return delta.changed.contains(customer) || (merging != null && merging.changed.contains(customer));
+        }
+    }
+
+    // Ties keep the order they were found in
+    private record Match(Customer customer, double score, int order) {}
+
+    private static final Comparator<Match> RANKING = Comparator.comparingDouble(Match::score).reversed()
+            .thenComparingInt(Match::order);
+
+    private final Object buildLock = new Object();
+    private final AtomicBoolean mergeRunning = new AtomicBoolean();
+    private volatile State state; // null until first built; until then updates are not tracked
+    private volatile boolean built;
+
+    public static CustomerSearch live() {
+        return live;
+    }
+
+    // Builds the index off the caller's thread, so the first search doesn't pay for it
+    public CompletableFuture<Void> buildInBackground() {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        Thread worker = new Thread(() -> {
+            try {
+                ensureBuilt();
+                result.complete(null);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            }
+        }, "customer-search");
+        worker.setDaemon(true);
+        worker.start();
+        return result;
+    }
+
+    // Best matches first; an empty query matches nothing
+    public List<Customer> search(String query, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        List<String> terms = queryTerms(query);
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        State current = ensureBuilt();
+
+        // Walk the term with the fewest postings; any other terms are checked per candidate
+        String anchor = terms.get(0);
+        int fewest = Integer.MAX_VALUE;
+        for (String term : terms) {
+            int count = current.base.countPrefix(term);
+            if (count < fewest) {
+                anchor = term;
+                fewest = count;
+            }
+        }
+        return new Query(current, terms, anchor, limit).run();
+    }
+
+    // Update hooks, called by Customer
+    void added(Customer customer) {
+        State current = state;
+        if (current != null) {
+            current.delta.add(customer);
+            mergeIfDue(current);
+        }
+    }
+
+    void changed(Customer customer) {
+        State current = state;
+        if (current != null) {
+            current.delta.changed.add(customer);
+            current.delta.add(customer);
+            mergeIfDue(current);
+        }
+    }
+
+    private State ensureBuilt() {
+        if (!built) {
+            synchronized (buildLock) {
+                if (!built) {
+                    state = new State(Segment.EMPTY, null, new Delta());
+                    merge();
+                    built = true;
+                }
+            }
+        }
+        return state;
+    }
+
+    private void mergeIfDue(State current) {
+        if (current.delta.postings.get() < Math.max(MIN_DELTA_POSTINGS, current.base.postings.length / 4)
+                || !mergeRunning.compareAndSet(false, true)) {
+            return;
+        }
+        Thread worker = new Thread(() -> {
+            try {
+                merge();
+            } finally {
+                mergeRunning.set(false);
+            }
+        }, "customer-search-merge");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    // Sets the delta aside, rebuilds the base from every registered customer, then drops it.
+    // Updates made meanwhile land in the fresh delta, so none are lost whichever side of the
+    // customer snapshot they fall on.
+    private void merge() {
+        synchronized (buildLock) {
+            State current = state;
+            Delta delta = new Delta();
+            state = new State(current.base, current.delta, delta);
+            Segment base = Segment.build(Customer.snapshotCustomers());
+            state = new State(base, null, delta);
+        }
+    }
+
+    // One search: walks the anchor term's postings exact matches first, then longer tokens, then
+    // tokens within one typo, keeping the best matches in a bounded heap. Candidates are only
+    // checked further when they could still enter it, and the walk stops once nothing left to
+    // examine can outrank what it holds. Candidates that need typo matching on another term are
+    // set aside and settled at the end, best possible score first, if they can still place.
+    private static final class Query {
+        final State state;
+        final List<String> terms;
+        final String anchor;
+        final int limit;
+        final PriorityQueue<Match> top;
+        final List<Match> deferred = new ArrayList<>();  // scored by the most they could reach
+        double bound;   // the best score anything not yet offered could reach
+        double deferredBound;
+        int examined;
+
+        Query(State state, List<String> terms, String anchor, int limit) {
+            this.state = state;
+            this.terms = terms;
+            this.anchor = anchor;
+            this.limit = limit;
+            this.top = new PriorityQueue<>(limit + 1, RANKING.reversed());
+        }
+
+        List<Customer> run() {
+            boolean digits = isDigits(anchor);
+            String suffix = digits ? suffixToken(anchor) : null;
+            bound = otherTerms(3);
+            for (Dictionary dictionary : state.dictionaries()) {
+                if (!dictionary.offerExact(anchor, this) || (digits && !dictionary.offerExact(suffix, this))) {
+                    return finish();
+                }
+            }
+            bound = otherTerms(prefixScore(anchor.length(), anchor.length() + (digits ? 2 : 1)));
+            for (Dictionary dictionary : state.dictionaries()) {
+                if (!dictionary.offerPrefix(anchor, false, false, this)
+                        || (digits && !dictionary.offerPrefix(suffix, false, false, this))) {
+                    return finish();
+                }
+            }
+            bound = otherTerms(2);
+            if (isFuzzy(anchor) && !isDone()) {
+                int[] row = new int[anchor.length() + 1];
+                for (int i = 0; i < row.length; i++) {
+                    row[i] = i;
+                }
+                for (Dictionary dictionary : state.dictionaries()) {
+                    if (!fuzzy(dictionary, "", row, null)) {
+                        break;
+                    }
+                }
+            }
+            return finish();
+        }
+
+        // Offers a customer whose token matched the anchor with the given score; false once
+        // the walk can stop
+        boolean offer(Customer customer, double anchorScore) {
+            if (++examined > MAX_CANDIDATES) {
+                return false;
+            }
+            if (top.size() == limit && otherTerms(anchorScore) <= top.peek().score()) {
+                return true;
+            }
+            double score = anchorScore;
+            if (terms.size() > 1 || state.changedSinceBuild(customer)) {
+                score = rescore(customer);
+                if (score == 0 || (top.size() == limit && score <= top.peek().score())) {
+                    return true;
+                }
+            }
+            admit(customer, score, examined);
+            return !isDone();
+        }
+
+        private void admit(Customer customer, double score, int order) {
+            if (Customer.findCustomer(customer.getUserID()).orElse(null) != customer) {
+                return;
+            }
+            for (Match match : top) {
+                if (match.customer() == customer) {
+                    if (match.score() >= score) {
+                        return;
+                    }
+                    top.remove(match);
+                    break;
+                }
+            }
+            top.add(new Match(customer, score, order));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+
+        // Scores every term against the customer's current fields by prefix; a customer that
+        // needs typo matching, the costly part, is deferred if it could still place
+        private double rescore(Customer customer) {
+            double score = 0;
+            int misses = 0;
+            for (String term : terms) {
+                double termScore = prefixScore(term, customer);
+                if (termScore == 0 && !isFuzzy(term)) {
+                    return 0;
+                }
+                misses += termScore == 0 ? 1 : 0;
+                score += termScore;
+            }
+            if (misses > 0) {
+                double best = score + 2.0 * misses;
+                if (top.size() < limit || best > top.peek().score()) {
+                    deferred.add(new Match(customer, best, examined));
+                    deferredBound = Math.max(deferredBound, best);
+                }
+                return 0;
+            }
+            return score;
+        }
+
+        private List<Customer> finish() {
+            deferred.sort(RANKING);
+            for (Match candidate : deferred) {
+                if (top.size() == limit && candidate.score() <= top.peek().score()) {
+                    break;
+                }
+                double score = fuzzyRescore(candidate.customer());
+                if (score > 0 && (top.size() < limit || score > top.peek().score())) {
+                    admit(candidate.customer(), score, candidate.order());
+                }
+            }
+            return results();
+        }
+
+        private double fuzzyRescore(Customer customer) {
+            double score = 0;
+            for (String term : terms) {
+                double termScore = prefixScore(term, customer);
+                if (termScore == 0) {
+                    termScore = fuzzyScore(term, customer);
+                }
+                if (termScore == 0) {
+                    return 0;
+                }
+                score += termScore;
+            }
+            return score;
+        }
+
+        private boolean isDone() {
+            return top.size() == limit && top.peek().score() >= Math.max(bound, deferredBound);
+        }
+
+        // The anchor's score plus the most the other terms could add
+        private double otherTerms(double anchorScore) {
+            return anchorScore + 3.0 * (terms.size() - 1);
+        }
+
+        // Depth-first walk of the dictionary's implicit trie, carrying the edit distance rows of
+        // the anchor against the current prefix and the one before it. A subtree whose prefix
+        // is within one edit of the whole anchor matches as a whole; the walk turns back once no
+        // extension of the prefix can come within one edit.
+        private boolean fuzzy(Dictionary dictionary, String prefix, int[] row, int[] previousRow) {
+            int depth = prefix.length();
+            String token = dictionary.ceiling(prefix);
+            while (token != null && token.startsWith(prefix)) {
+                if (token.length() == depth) {
+                    token = dictionary.ceiling(prefix + '\u0000');
+                    continue;
+                }
+                char next = token.charAt(depth);
+                String child = token.substring(0, depth + 1);
+                int[] childRow = editRow(anchor, row, previousRow, depth == 0 ? 0 : prefix.charAt(depth - 1), next);
+                if (childRow[anchor.length()] <= 1) {
+                    if (!dictionary.offerPrefix(child, true, true, this)) {
+                        return false;
+                    }
+                } else if ((min(childRow) <= 1 || min(row) == 0) && !fuzzy(dictionary, child, childRow, row)) {
+                    return false;
+                }
+                if (next == Character.MAX_VALUE) {
+                    break;
+                }
+                token = dictionary.ceiling(prefix + (char) (next + 1));
+            }
+            return true;
+        }
+
+        private List<Customer> results() {
+            List<Customer> results = new ArrayList<>(top.size());
+            while (!top.isEmpty()) {
+                results.add(top.poll().customer());
+            }
+            Collections.reverse(results);
+            return results;
+        }
+    }
+
+    // Optimal string alignment distances of the term against a token one character longer,
+    // given the rows for the token's two shorter prefixes; adjacent transpositions count as
+    // one edit
+    private static int[] editRow(String term, int[] row, int[] previousRow, char previous, char next) {
+        int[] result = new int[row.length];
+        result[0] = row[0] + 1;
+        for (int i = 1; i < row.length; i++) {
+            int substitution = row[i - 1] + (term.charAt(i - 1) == next ? 0 : 1);
+            result[i] = Math.min(substitution, Math.min(row[i], result[i - 1]) + 1);
+            if (previousRow != null && i > 1 && term.charAt(i - 1) == previous && term.charAt(i - 2) == next) {
+                result[i] = Math.min(result[i], previousRow[i - 2] + 1);
+            }
+        }
+        return result;
+    }
+
+    private static int min(int[] row) {
+        int min = row[0];
+        for (int value : row) {
+            min = Math.min(min, value);
+        }
+        return min;
+    }
+
+    // Scoring: 3 for an exact token, 2 to 3 for a prefix and 1 to 2 for a fuzzy prefix, higher
+    // the more of the token the term covers; a customer scores the sum over the query's terms
+    private static double prefixScore(int termLength, int tokenLength) {
+        return tokenLength == termLength ? 3 : 2 + (double) termLength / tokenLength;
+    }
+
+    private static double fuzzyScore(int termLength, int tokenLength) {
+        return 1 + (double) Math.min(termLength, tokenLength) / Math.max(termLength, tokenLength);
+    }
+
+    // Typo matching is for words; digit runs only match by prefix or, for phones, suffix
+    private static boolean isFuzzy(String term) {
+        return term.length() >= FUZZY_MIN_LENGTH && !isDigits(term);
+    }
+
+    // The term's best prefix score against the customer's current fields, compared in place
+    // rather than tokenized
+    private static double prefixScore(String term, Customer customer) {
+        String name = customer.getName();
+        String email = customer.getEmail();
+        int at = email.indexOf('@');
+        double best = Math.max(wordsScore(term, name, 0, name.length(), false),
+                wordsScore(term, email, 0, at < 0 ? email.length() : at, false));
+        if (startsWithIgnoreCase(email, 0, email.length(), term)) {
+            best = Math.max(best, prefixScore(term.length(), email.length()));
+        }
+        if (isDigits(term)) {
+            String digits = digits(customer.getPhone());
+            if (digits.startsWith(term)) {
+                best = Math.max(best, prefixScore(term.length(), digits.length()));
+            } else if (digits.endsWith(term)) {
+                best = Math.max(best, prefixScore(term.length() + 1, digits.length() + 1));
+            }
+        }
+        return best;
+    }
+
+    private static double fuzzyScore(String term, Customer customer) {
+        String name = customer.getName();
+        String email = customer.getEmail();
+        int at = email.indexOf('@');
+        double best = Math.max(wordsScore(term, name, 0, name.length(), true),
+                wordsScore(term, email, 0, at < 0 ? email.length() : at, true));
+        if (isWithinOneEdit(term, email, 0, email.length())) {
+            best = Math.max(best, fuzzyScore(term.length(), email.length()));
+        }
+        return best;
+    }
+
+    // Best score of the term against the words in text[from, to)
+    private static double wordsScore(String term, String text, int from, int to, boolean fuzzy) {
+        double best = 0;
+        int start = -1;
+        for (int i = from; i <= to; i++) {
+            boolean inWord = i < to && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                if (!fuzzy && startsWithIgnoreCase(text, start, i, term)) {
+                    best = Math.max(best, prefixScore(term.length(), i - start));
+                } else if (fuzzy && isWithinOneEdit(term, text, start, i)) {
+                    best = Math.max(best, fuzzyScore(term.length(), i - start));
+                }
+                start = -1;
+            }
+        }
+        return best;
+    }
+
+    private static boolean startsWithIgnoreCase(String text, int from, int to, String term) {
+        if (to - from < term.length()) {
+            return false;
+        }
+        for (int i = 0; i < term.length(); i++) {
+            if (Character.toLowerCase(text.charAt(from + i)) != term.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Whether some prefix of text[from, to), lower-cased, is within one edit of the term
+    private static boolean isWithinOneEdit(String term, String text, int from, int to) {
+        int[] previousRow = null;
+        int[] row = new int[term.length() + 1];
+        for (int i = 0; i < row.length; i++) {
+            row[i] = i;
+        }
+        char previous = 0;
+        for (int j = from; j < to && (min(row) <= 1 || (previousRow != null && min(previousRow) == 0)); j++) {
+            char next = Character.toLowerCase(text.charAt(j));
+            int[] nextRow = editRow(term, row, previousRow, previous, next);
+            if (nextRow[term.length()] <= 1) {
+                return true;
+            }
+            previousRow = row;
+            row = nextRow;
+            previous = next;
+        }
+        return false;
+    }
+
+    // Tokenizing: a phone-like query is one run of digits, a word with an @ is matched against
+    // whole addresses, and anything else splits into runs of letters and digits
+    private static List<String> queryTerms(String query) {
+        List<String> terms = new ArrayList<>();
+        if (query == null || query.isBlank()) {
+            return terms;
+        }
+        if (PHONE_QUERY.matcher(query).matches()) {
+            terms.add(digits(query));
+            return terms;
+        }
+        for (String word : query.trim().split("\\s+")) {
+            if (word.indexOf('@') >= 0) {
+                addToken(terms, word.toLowerCase(Locale.ROOT));
+            } else {
+                splitWords(word, terms);
+            }
+        }
+        // Terms that only match by prefix rule candidates out cheapest, so they are checked first
+        terms.sort(Comparator.comparing(CustomerSearch::isFuzzy));
+        return terms;
+    }
+
+    static List<String> tokens(Customer customer) {
+        List<String> tokens = new ArrayList<>(8);
+        splitWords(customer.getName(), tokens);
+        String email = customer.getEmail();
+        if (email != null) {
+            String address = email.trim().toLowerCase(Locale.ROOT);
+            addToken(tokens, address);
+            int at = address.indexOf('@');
+            splitWords(at < 0 ? address : address.substring(0, at), tokens);
+        }
+        String phone = customer.getPhone() == null ? "" : digits(customer.getPhone());
+        if (!phone.isEmpty()) {
+            addToken(tokens, phone);
+            addToken(tokens, suffixToken(phone));
+        }
+        return tokens;
+    }
+
+    private static void splitWords(String text, List<String> tokens) {
+        if (text == null) {
+            return;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inWord = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inWord && start < 0) {
+                start = i;
+            } else if (!inWord && start >= 0) {
+                addToken(tokens, text.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+    }
+
+    private static void addToken(List<String> tokens, String token) {
+        if (!token.isEmpty() && !tokens.contains(token)) {
+            tokens.add(token);
+        }
+    }
+
+    private static String digits(String text) {
+        StringBuilder digits = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    private static boolean isDigits(String term) {
+        for (int i = 0; i < term.length(); i++) {
+            if (term.charAt(i) < '0' || term.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String suffixToken(String digits) {
+        return SUFFIX_MARK + new StringBuilder(digits).reverse().toString();
+    }
+
+    // A sorted token dictionary; both kinds are walked the same way
+    private interface Dictionary {
+        // The smallest token at or after the key, or null
+        String ceiling(String key);
+
+        // Offers the customers of the token equal to the term; false once the query can stop
+        boolean offerExact(String term, Query query);
+
+        // Offers the customers of the tokens starting with the prefix, in token order, scored
+        // as prefix or fuzzy matches of the query's anchor
+        boolean offerPrefix(String prefix, boolean includeExact, boolean fuzzy, Query query);
+    }
+
+    private static final class Delta implements Dictionary {
+        final ConcurrentSkipListMap<String, Set<Customer>> tokens = new ConcurrentSkipListMap<>();
+        final Set<Customer> changed = ConcurrentHashMap.newKeySet();
+        final AtomicInteger postings = new AtomicInteger();
+
+        void add(Customer customer) {
+            for (String token : tokens(customer)) {
+                if (tokens.computeIfAbsent(token, t -> ConcurrentHashMap.newKeySet()).add(customer)) {
+                    postings.incrementAndGet();
+                }
+            }
+        }
+
+        @Override
+        public String ceiling(String key) {
+            return tokens.ceilingKey(key);
+        }
+
+        @Override
+        public boolean offerExact(String term, Query query) {
+            return offer(tokens.get(term), 3, query);
+        }
+
+        @Override
+        public boolean offerPrefix(String prefix, boolean includeExact, boolean fuzzy, Query query) {
+            int termLength = query.anchor.length() + (prefix.charAt(0) == SUFFIX_MARK ? 1 : 0);
+            for (Map.Entry<String, Set<Customer>> entry
+                    : tokens.subMap(prefix, includeExact, prefix + Character.MAX_VALUE, false).entrySet()) {
+                int tokenLength = entry.getKey().length();
+                double score = fuzzy ? fuzzyScore(termLength, tokenLength) : prefixScore(termLength, tokenLength);
+                if (!offer(entry.getValue(), score, query)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean offer(Set<Customer> customers, double score, Query query) {
+            if (customers != null) {
+                for (Customer customer : customers) {
+                    if (!query.offer(customer, score)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    // Token i is chars[tokenStart[i], tokenStart[i + 1]) and its customers are
+    // postings[postingStart[i], postingStart[i + 1])
+    private static final class Segment implements Dictionary {
+        static final Segment EMPTY = build(List.of());
+
+        final char[] chars;
+        final int[] tokenStart;
+        final int[] postingStart;
+        final Customer[] postings;
+
+        private Segment(char[] chars, int[] tokenStart, int[] postingStart, Customer[] postings) {
+            this.chars = chars;
+            this.tokenStart = tokenStart;
+            this.postingStart = postingStart;
+            this.postings = postings;
+        }
+
+        // Tokenizes every customer, numbers the distinct tokens, sorts them and lays the
+        // customers out token by token with a counting sort
+        static Segment build(List<Customer> customers) {
+            Map<String, Integer> ids = new HashMap<>();
+            List<String> distinct = new ArrayList<>();
+            int[] pairTokens = new int[Math.max(16, customers.size() * 6)];
+            int[] pairOwners = new int[pairTokens.length];
+            int pairs = 0;
+            for (int owner = 0; owner < customers.size(); owner++) {
+                for (String token : tokens(customers.get(owner))) {
+                    Integer id = ids.get(token);
+                    if (id == null) {
+                        id = distinct.size();
+                        ids.put(token, id);
+                        distinct.add(token);
+                    }
+                    if (pairs == pairTokens.length) {
+                        pairTokens = Arrays.copyOf(pairTokens, pairs * 2);
+                        pairOwners = Arrays.copyOf(pairOwners, pairs * 2);
+                    }
+                    pairTokens[pairs] = id;
+                    pairOwners[pairs] = owner;
+                    pairs++;
+                }
+            }
+
+            String[] sorted = distinct.toArray(new String[0]);
+            Arrays.parallelSort(sorted);
+            int[] rank = new int[sorted.length];
+            int characters = 0;
+            for (int i = 0; i < sorted.length; i++) {
+                rank[ids.get(sorted[i])] = i;
+                characters += sorted[i].length();
+            }
+            ids = null;
+
+            int[] postingStart = new int[sorted.length + 1];
+            for (int p = 0; p < pairs; p++) {
+                postingStart[rank[pairTokens[p]] + 1]++;
+            }
+            for (int i = 0; i < sorted.length; i++) {
+                postingStart[i + 1] += postingStart[i];
+            }
+            Customer[] postings = new Customer[pairs];
+            int[] fill = Arrays.copyOf(postingStart, sorted.length);
+            for (int p = 0; p < pairs; p++) {
+                postings[fill[rank[pairTokens[p]]]++] = customers.get(pairOwners[p]);
+            }
+
+            char[] chars = new char[characters];
+            int[] tokenStart = new int[sorted.length + 1];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i].getChars(0, sorted[i].length(), chars, tokenStart[i]);
+                tokenStart[i + 1] = tokenStart[i] + sorted[i].length();
+            }
+            return new Segment(chars, tokenStart, postingStart, postings);
+        }
+
+        int size() {
+            return tokenStart.length - 1;
+        }
+
+        // Postings under tokens starting with the term
+        int countPrefix(String term) {
+            return postingStart[ceilingIndex(term + Character.MAX_VALUE)] - postingStart[ceilingIndex(term)];
+        }
+
+        @Override
+        public String ceiling(String key) {
+            int index = ceilingIndex(key);
+            return index == size() ? null : new String(chars, tokenStart[index], tokenStart[index + 1] - tokenStart[index]);
+        }
+
+        @Override
+        public boolean offerExact(String term, Query query) {
+            int index = ceilingIndex(term);
+            return index == size() || compare(term, index) != 0 || offer(index, 3, query);
+        }
+
+        @Override
+        public boolean offerPrefix(String prefix, boolean includeExact, boolean fuzzy, Query query) {
+            int termLength = query.anchor.length() + (prefix.charAt(0) == SUFFIX_MARK ? 1 : 0);
+            int end = ceilingIndex(prefix + Character.MAX_VALUE);
+            for (int index = ceilingIndex(prefix); index < end; index++) {
+                int tokenLength = tokenStart[index + 1] - tokenStart[index];
+                if (tokenLength == prefix.length() && !includeExact) {
+                    continue;
+                }
+                double score = fuzzy ? fuzzyScore(termLength, tokenLength) : prefixScore(termLength, tokenLength);
+                if (!offer(index, score, query)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean offer(int index, double score, Query query) {
+            for (int p = postingStart[index]; p < postingStart[index + 1]; p++) {
+                if (!query.offer(postings[p], score)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private int ceilingIndex(String key) {
+            int low = 0;
+            int high = size();
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compare(key, middle) > 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private int compare(String key, int index) {
+            int start = tokenStart[index];
+            int length = tokenStart[index + 1] - start;
+            int shared = Math.min(key.length(), length);
+            for (int i = 0; i < shared; i++) {
+                int difference = key.charAt(i) - chars[start + i];
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return key.length() - length;
+        }
+    }
+}
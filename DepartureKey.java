@@ -0,0 +1,14 @@
+import java.time.LocalDateTime;
+
+// Orders flights by departure, then flight number, for the departure-ordered indexes
+record DepartureKey(LocalDateTime departureTime, String flightNumber) implements Comparable<DepartureKey> {
+    static DepartureKey of(Flight flight) {
+        return new DepartureKey(flight.getDepartureTime(), flight.getFlightNumber());
+    }
+
+    @Override
+    public int compareTo(DepartureKey other) {
+        int byTime = departureTime.compareTo(other.departureTime);
+        return byTime != 0 ? byTime : flightNumber.compareTo(other.flightNumber);
+    }
+}
@@ -0,0 +1,70 @@
+import java.time.Duration;
+
+public class DistanceMatrix {
+    private final String[] airports;
+    private final double[] nauticalMiles;
+    private final Duration[] blockTimes;
+
+    public DistanceMatrix(String[] airports, double[] latitudes, double[] longitudes) {
+        if (airports.length != latitudes.length || airports.length != longitudes.length) {
+            throw new IllegalArgumentException("Airport names and coordinates must line up");
+        }
+        int size = airports.length;
+        this.airports = airports.clone();
+        this.nauticalMiles = new double[size * size];
+        this.blockTimes = new Duration[size * size];
+
+        // Distances are symmetric, so each pair's trig runs once and is mirrored
+        for (int i = 0; i < size; i++) {
+            for (int j = i + 1; j < size; j++) {
+                double distance = FlightDistance.calculateNauticalMiles(
+                        latitudes[i], longitudes[i], latitudes[j], longitudes[j]);
+                nauticalMiles[i * size + j] = distance;
+                nauticalMiles[j * size + i] = distance;
+            }
+        }
+    }
+
+    // Builds a matrix from {name, latitude, longitude} rows such as RandomGenerator.DESTINATIONS
+    public static DistanceMatrix fromTable(String[][] table) {
+        String[] names = new String[table.length];
+        double[] latitudes = new double[table.length];
+        double[] longitudes = new double[table.length];
+        for (int i = 0; i < table.length; i++) {
+            names[i] = table[i][0];
+            latitudes[i] = Double.parseDouble(table[i][1]);
+            longitudes[i] = Double.parseDouble(table[i][2]);
+        }
+        return new DistanceMatrix(names, latitudes, longitudes);
+    }
+
+    public int size() {
+        return airports.length;
+    }
+
+    public String airportName(int airport) {
+        return airports[airport];
+    }
+
+    public double nauticalMiles(int origin, int destination) {
+        return nauticalMiles[cell(origin, destination)];
+    }
+
+    // Block times are derived once per pair on first use and shared by every flight on it
+    public Duration blockTime(int origin, int destination) {
+        int cell = cell(origin, destination);
+        Duration blockTime = blockTimes[cell];
+        if (blockTime == null) {
+            blockTime = Flight.calculateFlightDuration(nauticalMiles[cell]);
+            blockTimes[cell] = blockTime;
+        }
+        return blockTime;
+    }
+
+    private int cell(int origin, int destination) {
+        if (origin < 0 || origin >= airports.length || destination < 0 || destination >= airports.length) {
+            throw new IllegalArgumentException("Unknown airport index");
+        }
+        return origin * airports.length + destination;
+    }
+}
@@ -1,14 +1,26 @@
+import java.io.IOException;
 import java.time.*;
 import java.time.format.*;
 import java.time.temporal.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Pattern;
 
-public class Flight extends FlightDistance {
-    private static final int MIN_SEATS = 75;
-    private static final int MAX_SEATS = 500;
+// Final: the public constructors publish the flight, which a subclass would see half-built
+public final class Flight extends FlightDistance {
+    static final int MIN_SEATS = 75;
+    static final int MAX_SEATS = 500;
     private static final double AVERAGE_SPEED_KNOTS = 450.0;
+    static final Pattern FLIGHT_NUMBER_PATTERN = Pattern.compile("^[A-Z]{2}-\\d{3,4}$");
+    static final Pattern GATE_PATTERN = Pattern.compile("^[A-Z]\\d{1,2}$");
+    private static final DateTimeFormatter SCHEDULE_FORMATTER = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm");
     private static int nextFlightDay = 0;
     private static final List<Flight> flightList = new ArrayList<>();
+    private static final Map<String, Flight> flightIndex = new ConcurrentHashMap<>();
+    private static final RouteIndex routeIndex = new RouteIndex();
+    private static final ScheduleView scheduleView = new ScheduleView();
+    private static final FlightArchiver archiver = new FlightArchiver();
 
     private final String flightNumber;
     private final String fromCity;
@@ -16,8 +28,16 @@ public class Flight extends FlightDistance {
     private final String gate;
     private final LocalDateTime departureTime;
     private final Duration flightDuration;
-    private int availableSeats;
-    private final List<Customer> registeredCustomers;
+    private final int totalSeats;
+    private final AtomicInteger availableSeats;
+    private final BookingLedger<Customer> passengers; // own monitor, always taken after the customer's
+    // Created when the flight is registered, so rows a bulk load rejects leave nothing behind,
+    // not even analytics entries for their route and day
+    private SeatMap seatMap; // guarded by the passengers monitor
+    private Waitlist waitlist; // monitor taken before the customer's
+    private FlightAnalytics.Counters counters;
+    private volatile boolean closed; // archived or cancelled; set under the passengers monitor
+    private int listSlot = -1; // position in flightList, guarded by its monitor
 
     public Flight() {
         this("", "", "", "", LocalDateTime.now(), 0, 0);
@@ -26,20 +46,171 @@ public class Flight extends FlightDistance {
     public Flight(String flightNumber, String fromCity, String toCity,
                   String gate, LocalDateTime departureTime,
                   double distanceMiles, int totalSeats) {
+        this(flightNumber, fromCity, toCity, gate, departureTime,
+                calculateFlightDuration(distanceMiles), totalSeats);
+    }
+
+    public Flight(String flightNumber, String fromCity, String toCity,
+                  String gate, LocalDateTime departureTime,
+                  Duration flightDuration, int totalSeats) {
+        this(flightNumber, fromCity, toCity, gate, validateDepartureTime(departureTime),
+                flightDuration, totalSeats, true);
+    }
+
+    private Flight(String flightNumber, String fromCity, String toCity,
+                   String gate, LocalDateTime departureTime,
+                   Duration flightDuration, int totalSeats, boolean register) {
         this.flightNumber = validateFlightNumber(flightNumber);
         this.fromCity = validateCity(fromCity);
         this.toCity = validateCity(toCity);
         this.gate = validateGate(gate);
-        this.departureTime = validateDepartureTime(departureTime);
-        this.flightDuration = calculateFlightDuration(distanceMiles);
-        this.availableSeats = validateSeats(totalSeats);
-        this.registeredCustomers = new ArrayList<>();
-        flightList.add(this);
+        this.departureTime = Objects.requireNonNull(departureTime, "Departure time cannot be null");
+        this.flightDuration = Objects.requireNonNull(flightDuration, "Flight duration cannot be null");
+        this.totalSeats = validateSeats(totalSeats);
+        this.availableSeats = new AtomicInteger(this.totalSeats);
+        this.passengers = new BookingLedger<>();
+        if (register) {
+            register(this);
+        }
+    }
+
+    // Builds and validates a flight without publishing it, for bulk loaders that call registerAll
+    static Flight createUnregistered(String flightNumber, String fromCity, String toCity,
+                                     String gate, LocalDateTime departureTime,
+                                     Duration flightDuration, int totalSeats) {
+        return new Flight(flightNumber, fromCity, toCity, gate, validateDepartureTime(departureTime),
+                flightDuration, totalSeats, false);
+    }
+
+    // Re-creates a persisted flight, which may already have departed, and publishes it
+    static Flight restore(String flightNumber, String fromCity, String toCity,
+                          String gate, LocalDateTime departureTime,
+                          Duration flightDuration, int totalSeats) {
+        Flight flight = new Flight(flightNumber, fromCity, toCity, gate, departureTime,
+                flightDuration, totalSeats, false);
+        register(flight);
+        return flight;
+    }
+
+    // Registry methods. Inserts are serialized on the flight list, so a number found free stays
+    // free until the flight is in. The flight is journaled and announced before it can be found,
+    // so no booking on it is ever recorded or published ahead of it.
+    private static void register(Flight flight) {
+        String key = normalizeFlightNumber(flight.flightNumber);
+        synchronized (flightList) {
+            if (flightIndex.containsKey(key)) {
+                throw new IllegalArgumentException("Flight number already exists");
+            }
+            BookingJournal.recordFlight(flight);
+            BookingEvents.live().flightCreated(flight);
+            flight.attach();
+            flightIndex.put(key, flight);
+            flight.listSlot = flightList.size();
+            flightList.add(flight);
+        }
+        routeIndex.add(flight);
+        scheduleView.add(flight);
+        archiver.schedule(flight);
+        FlightAnalytics.live().flightAdded(flight.counters, flight.totalSeats);
+    }
+
+    // Publishes a batch under one registry lock; returns the flights rejected as duplicate numbers
+    public static List<Flight> registerAll(List<Flight> flights) {
+        List<Flight> accepted = new ArrayList<>(flights.size());
+        List<Flight> duplicates = new ArrayList<>();
+        synchronized (flightList) {
+            for (Flight flight : flights) {
+                String key = normalizeFlightNumber(flight.flightNumber);
+                if (flightIndex.containsKey(key)) {
+                    duplicates.add(flight);
+                    continue;
+                }
+                BookingJournal.recordFlight(flight);
+                BookingEvents.live().flightCreated(flight);
+                flight.attach();
+                flightIndex.put(key, flight);
+                flight.listSlot = flightList.size();
+                flightList.add(flight);
+                accepted.add(flight);
+            }
+        }
+        for (Flight flight : accepted) {
+            routeIndex.add(flight);
+            scheduleView.add(flight);
+            archiver.schedule(flight);
+            FlightAnalytics.live().flightAdded(flight.counters, flight.totalSeats);
+        }
+        return duplicates;
+    }
+
+    // Booking state for a flight about to be published; the registry hands it out afterwards
+    private void attach() {
+        seatMap = new SeatMap(totalSeats);
+        waitlist = new Waitlist(this);
+        counters = FlightAnalytics.live().countersFor(this);
+    }
+
+    // Cancels flights outright, e.g. every flight at a closed airport. The batch is unpublished
+    // in one pass and each flight then unwinds through its own passenger list, so the work
+    // grows with the bookings affected. Returns the flights that were still registered, with
+    // the passengers they had.
+    public static Map<Flight, BookingLedger<Customer>> cancelFlights(Collection<Flight> flights) {
+        Map<Flight, BookingLedger<Customer>> cancelled = new LinkedHashMap<>();
+        for (Flight flight : removeFlights(flights)) {
+            cancelled.put(flight, flight.retire());
+            BookingJournal.recordFlightCancellation(flight);
+        }
+        return cancelled;
+    }
+
+    public static boolean removeFlight(Flight flight) {
+        return !removeFlights(List.of(flight)).isEmpty();
+    }
+
+    // Unpublishes a batch; returns the flights that were still registered. Each leaves the flight
+    // list by swapping the last flight into its slot, so the cost grows with the batch only.
+    static List<Flight> removeFlights(Collection<Flight> flights) {
+        List<Flight> removed = new ArrayList<>(flights.size());
+        for (Flight flight : flights) {
+            if (flightIndex.remove(normalizeFlightNumber(flight.flightNumber), flight)) {
+                removed.add(flight);
+            }
+        }
+        if (removed.isEmpty()) {
+            return removed;
+        }
+        synchronized (flightList) {
+            for (Flight flight : removed) {
+                Flight last = flightList.remove(flightList.size() - 1);
+                if (last != flight) {
+                    flightList.set(flight.listSlot, last);
+                    last.listSlot = flight.listSlot;
+                }
+                flight.listSlot = -1;
+            }
+        }
+        for (Flight flight : removed) {
+            routeIndex.remove(flight);
+            scheduleView.remove(flight);
+            archiver.unschedule(flight);
+        }
+        return removed;
+    }
+
+    public static Optional<Flight> findFlight(String flightNumber) {
+        if (flightNumber == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(flightIndex.get(normalizeFlightNumber(flightNumber)));
+    }
+
+    private static String normalizeFlightNumber(String flightNumber) {
+        return flightNumber.trim().toUpperCase(Locale.ROOT);
     }
 
     // Validation methods
     private String validateFlightNumber(String number) {
-        if (number == null || !number.matches("^[A-Z]{2}-\\d{3}$")) {
+        if (number == null || !FLIGHT_NUMBER_PATTERN.matcher(number).matches()) {
             throw new IllegalArgumentException("Invalid flight number format");
         }
         return number;
@@ -53,13 +224,13 @@ public class Flight extends FlightDistance {
     }
 
     private String validateGate(String gate) {
-        if (gate == null || !gate.matches("^[A-Z]\\d{1,2}$")) {
+        if (gate == null || !GATE_PATTERN.matcher(gate).matches()) {
             throw new IllegalArgumentException("Invalid gate format");
         }
         return gate;
     }
 
-    private LocalDateTime validateDepartureTime(LocalDateTime time) {
+    static LocalDateTime validateDepartureTime(LocalDateTime time) {
         if (time == null || time.isBefore(LocalDateTime.now())) {
             throw new IllegalArgumentException("Departure time must be in future");
         }
@@ -75,7 +246,7 @@ public class Flight extends FlightDistance {
     }
 
     // Core methods
-    private Duration calculateFlightDuration(double distanceMiles) {
+    public static Duration calculateFlightDuration(double distanceMiles) {
         double hours = distanceMiles / AVERAGE_SPEED_KNOTS;
         long minutes = Math.round((hours % 1) * 60);
         return Duration.ofHours((long) hours).plusMinutes(minutes);
@@ -85,37 +256,195 @@ public class Flight extends FlightDistance {
         return departureTime.plus(flightDuration);
     }
 
+    // Seat inventory: a CAS loop on the seat counter, so concurrent bookers never oversell
+    public boolean tryReserveSeats(int seats) {
+        if (seats <= 0) {
+            return false;
+        }
+        int available;
+        do {
+            available = availableSeats.get();
+            if (seats > available) {
+                return false;
+            }
+        } while (!availableSeats.compareAndSet(available, available - seats));
+        return true;
+    }
+
+    public void releaseSeats(int seats) {
+        if (seats <= 0) {
+            throw new IllegalArgumentException("Seats to release must be positive");
+        }
+        int available;
+        do {
+            available = availableSeats.get();
+            if (available + seats > totalSeats) {
+                throw new IllegalStateException("Cannot release more seats than were booked");
+            }
+        } while (!availableSeats.compareAndSet(available, available + seats));
+    }
+
+    // Reserves as many of the requested seats as are left and returns how many were taken
+    public int reserveUpTo(int seats) {
+        int available;
+        int taken;
+        do {
+            available = availableSeats.get();
+            taken = Math.min(seats, available);
+            if (taken <= 0) {
+                return 0;
+            }
+        } while (!availableSeats.compareAndSet(available, available - taken));
+        return taken;
+    }
+
     public boolean bookSeats(Customer customer, int seats) {
-        if (seats <= 0 || seats > availableSeats) {
+        if (!tryReserveSeats(seats)) {
             return false;
         }
+        if (!recordBooking(customer, seats)) {
+            releaseSeats(seats);
+            return false;
+        }
+        return true;
+    }
 
-        if (!registeredCustomers.contains(customer)) {
-            registeredCustomers.add(customer);
+    // Records a booking whose seats have already been reserved on this flight; false once the
+    // flight is closed, the customer deleted or the journal closed, leaving the seats with the
+    // caller and nothing else changed
+    boolean recordBooking(Customer customer, int seats) {
+        synchronized (customer) {
+            if (customer.isRemoved()) {
+                return false;
+            }
+            synchronized (passengers) {
+                long version = customer.getBookingVersion() + 1;
+                if (closed || !BookingJournal.recordBooking(this, customer, seats, version)) {
+                    return false;
+                }
+                passengers.add(customer, seats);
+                seatMap.assign(customer, seats);
+            }
+            customer.addFlightBooking(this, seats);
+            FlightAnalytics.live().seatsChanged(counters, customer, seats);
+            BookingEvents.live().booked(this, customer, seats);
         }
-        availableSeats -= seats;
-        customer.addFlightBooking(this, seats);
         return true;
     }
 
+    // Recovery paths: persisted history is authoritative, so seats are applied without
+    // capacity checks while a snapshot and the journal records after it are reconciled.
+    // Journal replay repeats the original seat assignments; a snapshot reseats its passengers
+    // in booking order.
+    void restorePassenger(Customer customer, int seats) {
+        synchronized (passengers) {
+            passengers.add(customer, seats);
+            seatMap.assign(customer, seats);
+        }
+        availableSeats.addAndGet(-seats);
+        FlightAnalytics.live().seatsChanged(counters, customer, seats);
+        BookingEvents.live().booked(this, customer, seats);
+    }
+
+    // The seats only leave the counter once the booking is accepted
+    boolean replayBooking(Customer customer, int seats) {
+        if (!recordBooking(customer, seats)) {
+            return false;
+        }
+        availableSeats.addAndGet(-seats);
+        return true;
+    }
+
+    boolean replayCancellation(Customer customer, int seats) {
+        synchronized (customer) {
+            if (!removePassenger(customer, seats, false)) {
+                return false;
+            }
+            BookingEvents.live().cancelled(this, customer, seats);
+        }
+        availableSeats.addAndGet(seats);
+        return true;
+    }
+
+    public boolean cancelSeats(Customer customer, int seats) {
+        synchronized (customer) {
+            if (!removePassenger(customer, seats, true)) {
+                return false;
+            }
+            BookingEvents.live().cancelled(this, customer, seats);
+        }
+        waitlist.release(seats);
+        return true;
+    }
+
+    // Caller holds the customer's monitor, so its itinerary and the passenger list agree. A
+    // journaled cancellation is refused, with nothing changed, once the journal is closed.
+    private boolean removePassenger(Customer customer, int seats, boolean journal) {
+        synchronized (passengers) {
+            if (closed || seats <= 0 || seats > passengers.get(customer)) {
+                return false;
+            }
+            if (journal && !BookingJournal.recordCancellation(this, customer, seats,
+                    customer.getBookingVersion() + 1)) {
+                return false;
+            }
+            passengers.add(customer, -seats);
+            seatMap.release(customer, seats);
+        }
+        customer.removeFlightBooking(this, seats);
+        FlightAnalytics.live().seatsChanged(counters, customer, -seats);
+        return true;
+    }
+
+    // Closes an unpublished flight to bookings and cancellations, drops its waitlist and takes it
+    // off its passengers' itineraries, visiting only its own passenger list; returns that list
+    BookingLedger<Customer> retire() {
+        BookingLedger<Customer> manifest = closeBookings();
+        detach(manifest);
+        return manifest;
+    }
+
+    // Closes the flight to bookings and cancellations and returns its final passenger list;
+    // repeating it returns the same list
+    BookingLedger<Customer> closeBookings() {
+        synchronized (passengers) {
+            closed = true;
+            return passengers.copy();
+        }
+    }
+
+    // The second half of retire, for a closed flight whose final passenger list is filed
+    void detach(BookingLedger<Customer> manifest) {
+        waitlist.close();
+        manifest.forEach((customer, tickets) -> {
+            synchronized (customer) {
+                customer.removeFlightBooking(this, tickets);
+                FlightAnalytics.live().seatsChanged(counters, customer, -tickets);
+            }
+        });
+        FlightAnalytics.live().flightRemoved(counters, totalSeats);
+        BookingEvents.live().flightRemoved(this);
+    }
+
     public static void scheduleRandomFlights(int count) {
         RandomGenerator random = new RandomGenerator();
+        DistanceMatrix distances = RandomGenerator.destinationDistances();
         for (int i = 0; i < count; i++) {
-            String[][] destinations = random.randomDestinations();
-            String[] distances = calculateDistance(
-                    Double.parseDouble(destinations[0][1]),
-                    Double.parseDouble(destinations[0][2]),
-                    Double.parseDouble(destinations[1][1]),
-                    Double.parseDouble(destinations[1][2])
-            );
+            int origin = random.randomAirport();
+            int destination = random.randomDestinationFrom(origin);
+
+            String flightNumber;
+            do {
+                flightNumber = random.generateFlightNumber();
+            } while (flightIndex.containsKey(flightNumber));
 
             new Flight(
-                    random.generateFlightNumber(),
-                    destinations[0][0],
-                    destinations[1][0],
+                    flightNumber,
+                    distances.airportName(origin),
+                    distances.airportName(destination),
                     random.generateGate(),
                     generateRandomDepartureTime(),
-                    Double.parseDouble(distances[0]),
+                    distances.blockTime(origin, destination),
                     random.generateSeats()
             );
         }
@@ -137,25 +466,84 @@ public class Flight extends FlightDistance {
     public String getGate() { return gate; }
     public LocalDateTime getDepartureTime() { return departureTime; }
     public Duration getFlightDuration() { return flightDuration; }
-    public int getAvailableSeats() { return availableSeats; }
-    public List<Customer> getPassengers() { return Collections.unmodifiableList(registeredCustomers); }
+    public int getTotalSeats() { return totalSeats; }
+    public int getAvailableSeats() { return availableSeats.get(); }
+    public List<Customer> getPassengers() {
+        synchronized (passengers) {
+            return passengers.keys();
+        }
+    }
+
+    public int getPassengerCount() {
+        synchronized (passengers) {
+            return passengers.size();
+        }
+    }
+
+    public int getTicketsFor(Customer customer) {
+        synchronized (passengers) {
+            return passengers.get(customer);
+        }
+    }
+
+    // Seat labels such as "12C", in seat order
+    public List<String> getSeatsFor(Customer customer) {
+        int[] seats;
+        synchronized (passengers) {
+            seats = seatMap.seatsOf(customer);
+        }
+        List<String> labels = new ArrayList<>(seats.length);
+        for (int seat : seats) {
+            labels.add(SeatMap.label(seat));
+        }
+        return labels;
+    }
+
+    public BookingLedger<Customer> getPassengerBookings() {
+        synchronized (passengers) {
+            return passengers.copy();
+        }
+    }
+
     public static List<Flight> getAllFlights() { return Collections.unmodifiableList(flightList); }
 
+    // Point-in-time copy that is safe to iterate while flights keep being added
+    public static List<Flight> snapshotFlights() {
+        synchronized (flightList) {
+            return new ArrayList<>(flightList);
+        }
+    }
+
+    public Waitlist getWaitlist() { return waitlist; }
+    public boolean isClosed() { return closed; }
+    public static FlightArchiver getArchiver() { return archiver; }
+
+    public static RouteIndex getRouteIndex() { return routeIndex; }
+    public static ScheduleView getScheduleView() { return scheduleView; }
+
     // Display methods
+    @Override
+    public String toString(int i) {
+        return String.format("%-4d %-8s | %-15s -> %-15s | Gate: %-4s | Seats: %-3d",
+                i, flightNumber, fromCity, toCity, gate, getAvailableSeats());
+    }
+
     public void displaySchedule() {
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm");
         System.out.printf("%-8s | %-15s -> %-15s | Dep: %s | Arr: %s | Gate: %-4s | Seats: %-3d%n",
                 flightNumber,
                 fromCity,
                 toCity,
-                departureTime.format(formatter),
-                getArrivalTime().format(formatter),
+                departureTime.format(SCHEDULE_FORMATTER),
+                getArrivalTime().format(SCHEDULE_FORMATTER),
                 gate,
-                availableSeats);
+                getAvailableSeats());
     }
 
     public static void displayAllFlights() {
-        System.out.println("\n=== Flight Schedule ===");
-        flightList.forEach(Flight::displaySchedule);
+        try (ReportEngine report = ReportEngine.console()) {
+            report.writeSchedule(scheduleView);
+        } catch (IOException e) {
+            System.err.println("Report output failed: " + e.getMessage());
+        }
     }
 }
\ No newline at end of file
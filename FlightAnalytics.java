@@ -0,0 +1,285 @@
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+// Aggregate views over the live schedule: load factor per route, seats sold per departure day
+// and the customers holding the most tickets.
+// live() is maintained incrementally: Flight reports every registration, booking, cancellation
+// and archival as it happens, so dashboard queries read counters instead of rescanning flights.
+// recompute() derives the same figures from scratch with a fork-join pass over every flight's
+// passenger list, for reports and for checking the counters.
+public class FlightAnalytics {
+    private static final int RECOMPUTE_THRESHOLD = 2048; // flights per fork-join leaf
+    private static final FlightAnalytics live = new FlightAnalytics();
+
+    public record RouteLoad(String fromCity, String toCity, long flights, long seats, long seatsSold) {
+        public double loadFactor() {
+            return seats == 0 ? 0 : (double) seatsSold / seats;
+        }
+    }
+
+    public record CustomerTickets(String userId, long tickets) {}
+
+    public record Report(List<RouteLoad> routes, SortedMap<LocalDate, Long> seatsSoldByDay,
+                         List<CustomerTickets> topCustomers) {}
+
+    // Resolved once per flight, so booking hooks go straight to the flight's route and day counters
+    static final class Counters {
+        final Route route;
+        final LongAdder daySold;
+
+        private Counters(Route route, LongAdder daySold) {
+            this.route = route;
+            this.daySold = daySold;
+        }
+    }
+
+    private static final class Route {
+        final String fromCity;
+        final String toCity;
+        final LongAdder flights = new LongAdder();
+        final LongAdder seats = new LongAdder();
+        final LongAdder sold = new LongAdder();
+
+        Route(String fromCity, String toCity) {
+            this.fromCity = fromCity;
+            this.toCity = toCity;
+        }
+
+        RouteLoad load() {
+            return new RouteLoad(fromCity, toCity, flights.sum(), seats.sum(), sold.sum());
+        }
+    }
+
+    // Most tickets first, then by user ID
+    private record Rank(long tickets, String userId) implements Comparable<Rank> {
+        @Override
+        public int compareTo(Rank other) {
+            int byTickets = Long.compare(other.tickets, tickets);
+            return byTickets != 0 ? byTickets : userId.compareTo(other.userId);
+        }
+    }
+
+    private final Map<String, Route> routes = new ConcurrentHashMap<>();
+    private final Map<LocalDate, LongAdder> soldByDay = new ConcurrentHashMap<>();
+    private final Map<String, Rank> ranks = new ConcurrentHashMap<>();
+    private final ConcurrentSkipListSet<Rank> ranking = new ConcurrentSkipListSet<>();
+
+    public static FlightAnalytics live() {
+        return live;
+    }
+
+    // Update hooks, called by Flight
+    Counters countersFor(Flight flight) {
+        Route route = routes.computeIfAbsent(routeKey(flight.getFromCity(), flight.getToCity()),
+                key -> new Route(flight.getFromCity(), flight.getToCity()));
+        LongAdder day = soldByDay.computeIfAbsent(flight.getDepartureTime().toLocalDate(), d -> new LongAdder());
+        return new Counters(route, day);
+    }
+
+    void flightAdded(Counters counters, int seats) {
+        counters.route.flights.increment();
+        counters.route.seats.add(seats);
+    }
+
+    void flightRemoved(Counters counters, int seats) {
+        counters.route.flights.decrement();
+        counters.route.seats.add(-seats);
+    }
+
+    // Positive for bookings, negative for cancellations; callers hold the customer's monitor,
+    // so each customer's rank changes one at a time
+    void seatsChanged(Counters counters, Customer customer, int seats) {
+        counters.route.sold.add(seats);
+        counters.daySold.add(seats);
+        String userId = customer.getUserID();
+        Rank old = ranks.get(userId);
+        long tickets = (old == null ? 0 : old.tickets()) + seats;
+        // The new rank goes in before the old one leaves, so a concurrent top list never
+        // misses the customer; topCustomers skips the brief duplicate
+        if (tickets > 0) {
+            Rank updated = new Rank(tickets, userId);
+            ranking.add(updated);
+            ranks.put(userId, updated);
+        } else {
+            ranks.remove(userId);
+        }
+        if (old != null) {
+            ranking.remove(old);
+        }
+    }
+
+    // Queries
+    public Optional<RouteLoad> routeLoad(String fromCity, String toCity) {
+        Route route = routes.get(routeKey(fromCity, toCity));
+        return route == null || route.flights.sum() == 0 ? Optional.empty() : Optional.of(route.load());
+    }
+
+    // Routes with scheduled flights, fullest first
+    public List<RouteLoad> routeLoads() {
+        List<RouteLoad> loads = new ArrayList<>(routes.size());
+        for (Route route : routes.values()) {
+            RouteLoad load = route.load();
+            if (load.flights() > 0) {
+                loads.add(load);
+            }
+        }
+        loads.sort(Comparator.comparingDouble(RouteLoad::loadFactor).reversed()
+                .thenComparing(RouteLoad::fromCity).thenComparing(RouteLoad::toCity));
+        return loads;
+    }
+
+    public long seatsSoldOn(LocalDate day) {
+        LongAdder sold = soldByDay.get(day);
+        return sold == null ? 0 : sold.sum();
+    }
+
+    // Seats sold on flights departing within [start, end], by day; days without sales are left out
+    public SortedMap<LocalDate, Long> seatsSoldByDay(LocalDate start, LocalDate end) {
+        SortedMap<LocalDate, Long> days = new TreeMap<>();
+        if (end.toEpochDay() - start.toEpochDay() < soldByDay.size()) {
+            for (LocalDate day = start; !day.isAfter(end); day = day.plusDays(1)) {
+                long sold = seatsSoldOn(day);
+                if (sold != 0) {
+                    days.put(day, sold);
+                }
+            }
+        } else {
+            soldByDay.forEach((day, sold) -> {
+                if (!day.isBefore(start) && !day.isAfter(end) && sold.sum() != 0) {
+                    days.put(day, sold.sum());
+                }
+            });
+        }
+        return days;
+    }
+
+    public List<CustomerTickets> topCustomers(int count) {
+        if (count <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        List<CustomerTickets> top = new ArrayList<>(count);
+        Set<String> seen = new HashSet<>();
+        for (Rank rank : ranking) {
+            if (seen.add(rank.userId())) {
+                top.add(new CustomerTickets(rank.userId(), rank.tickets()));
+                if (top.size() == count) {
+                    break;
+                }
+            }
+        }
+        return top;
+    }
+
+    public Report report(int topCustomers) {
+        return new Report(routeLoads(), seatsSoldByDay(LocalDate.MIN, LocalDate.MAX), topCustomers(topCustomers));
+    }
+
+    // Full recompute: splits the flight list across the common fork-join pool, aggregates each
+    // range into its own maps and merges the partial results pairwise
+    public static Report recompute(int topCustomers) {
+        if (topCustomers <= 0) {
+            throw new IllegalArgumentException("Count must be positive");
+        }
+        List<Flight> flights = Flight.snapshotFlights();
+        Partial total = new RecomputeTask(flights, 0, flights.size()).invoke();
+
+        List<RouteLoad> loads = new ArrayList<>(total.routes.size());
+        total.routes.forEach((key, sums) -> loads.add(new RouteLoad(total.routeCities.get(key)[0],
+                total.routeCities.get(key)[1], sums[0], sums[1], sums[2])));
+        loads.sort(Comparator.comparingDouble(RouteLoad::loadFactor).reversed()
+                .thenComparing(RouteLoad::fromCity).thenComparing(RouteLoad::toCity));
+
+        SortedMap<LocalDate, Long> days = new TreeMap<>();
+        total.soldByDay.forEach((day, sold) -> {
+            if (sold[0] != 0) {
+                days.put(day, sold[0]);
+            }
+        });
+
+        PriorityQueue<Rank> top = new PriorityQueue<>(Comparator.reverseOrder());
+        total.tickets.forEach((userId, tickets) -> {
+            top.add(new Rank(tickets[0], userId));
+            if (top.size() > topCustomers) {
+                top.poll();
+            }
+        });
+        List<CustomerTickets> customers = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            Rank rank = top.poll();
+            customers.add(new CustomerTickets(rank.userId(), rank.tickets()));
+        }
+        Collections.reverse(customers);
+        return new Report(loads, days, customers);
+    }
+
+    private static final class Partial {
+        final Map<String, long[]> routes = new HashMap<>();        // flights, seats, sold
+        final Map<String, String[]> routeCities = new HashMap<>();
+        final Map<LocalDate, long[]> soldByDay = new HashMap<>();
+        final Map<String, long[]> tickets = new HashMap<>();
+
+        void add(Flight flight) {
+            String key = routeKey(flight.getFromCity(), flight.getToCity());
+            routeCities.putIfAbsent(key, new String[] {flight.getFromCity(), flight.getToCity()});
+            long[] route = routes.computeIfAbsent(key, k -> new long[3]);
+            BookingLedger<Customer> passengers = flight.getPassengerBookings();
+            long sold = passengers.totalTickets();
+            route[0]++;
+            route[1] += flight.getTotalSeats();
+            route[2] += sold;
+            soldByDay.computeIfAbsent(flight.getDepartureTime().toLocalDate(), d -> new long[1])[0] += sold;
+            passengers.forEach((customer, count) ->
+                    tickets.computeIfAbsent(customer.getUserID(), id -> new long[1])[0] += count);
+        }
+
+        Partial merge(Partial other) {
+            other.routes.forEach((key, sums) -> {
+                long[] route = routes.computeIfAbsent(key, k -> new long[3]);
+                for (int i = 0; i < route.length; i++) {
+                    route[i] += sums[i];
+                }
+            });
+            other.routeCities.forEach(routeCities::putIfAbsent);
+            other.soldByDay.forEach((day, sold) -> soldByDay.computeIfAbsent(day, d -> new long[1])[0] += sold[0]);
+            other.tickets.forEach((userId, count) -> tickets.computeIfAbsent(userId, id -> new long[1])[0] += count[0]);
+            return this;
+        }
+    }
+
+    private static final class RecomputeTask extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+        private final transient List<Flight> flights;
+        private final int start;
+        private final int end;
+
+        RecomputeTask(List<Flight> flights, int start, int end) {
+            this.flights = flights;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (end - start <= RECOMPUTE_THRESHOLD) {
+                Partial partial = new Partial();
+                for (int i = start; i < end; i++) {
+                    partial.add(flights.get(i));
+                }
+                return partial;
+            }
+            int middle = (start + end) >>> 1;
+            RecomputeTask left = new RecomputeTask(flights, start, middle);
+            left.fork();
+            Partial right = new RecomputeTask(flights, middle, end).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static String routeKey(String fromCity, String toCity) {
+        return fromCity.trim().toLowerCase(Locale.ROOT) + '\u0000' + toCity.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,393 @@
+import java.io.*;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.*;
+import java.util.*;
+import java.util.function.ObjIntConsumer;
+import java.util.zip.CRC32C;
+
+// History of flights that have landed, moved out of the live registry by FlightArchiver.
+// An archived flight keeps its schedule as primitives, its cities and gates interned, and its
+// manifest as parallel arrays of user IDs and ticket counts, with no references to live Flight
+// or Customer objects. Flights that departed before the retention window are evicted, and an
+// interned name goes with the last flight using it, so memory stays bounded however long the
+// system runs. An archive opened on a file also appends every flight there as a checksummed
+// record, forced to disk before add returns, and reloads the retained ones on the next start,
+// skipping expired records as it reads. Once expired records outnumber retained ones the file is
+// rewritten with just the retained flights, so it stays bounded too.
+public class FlightArchive implements Closeable {
+    public static final Duration DEFAULT_RETENTION =
+            Duration.ofDays(Long.getLong("airline.archiveRetentionDays", 365));
+    private static final int MAGIC = 0x46415232; // "FAR2"
+    private static final int FILE_HEADER_SIZE = Integer.BYTES;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES * 2; // length + checksum
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+
+    public static final class ArchivedFlight {
+        private final String flightNumber;
+        private final String fromCity;
+        private final String toCity;
+        private final String gate;
+        private final long departureMinute; // minutes since 1970-01-01T00:00, read back as a LocalDateTime
+        private final int durationMinutes;
+        private final int totalSeats;
+        private final String[] userIds;
+        private final short[] tickets;
+
+        private ArchivedFlight(String flightNumber, String fromCity, String toCity, String gate,
+                               long departureMinute, int durationMinutes, int totalSeats,
+                               String[] userIds, short[] tickets) {
+            this.flightNumber = flightNumber;
+            this.fromCity = fromCity;
+            this.toCity = toCity;
+            this.gate = gate;
+            this.departureMinute = departureMinute;
+            this.durationMinutes = durationMinutes;
+            this.totalSeats = totalSeats;
+            this.userIds = userIds;
+            this.tickets = tickets;
+        }
+
+        public String getFlightNumber() { return flightNumber; }
+        public String getFromCity() { return fromCity; }
+        public String getToCity() { return toCity; }
+        public String getGate() { return gate; }
+        public int getTotalSeats() { return totalSeats; }
+        public int getPassengerCount() { return userIds.length; }
+
+        public LocalDateTime getDepartureTime() {
+            return LocalDateTime.ofEpochSecond(departureMinute * 60, 0, ZoneOffset.UTC);
+        }
+
+        public LocalDateTime getArrivalTime() {
+            return getDepartureTime().plusMinutes(durationMinutes);
+        }
+
+        public int getTicketsFor(String userId) {
+            for (int i = 0; i < userIds.length; i++) {
+                if (userIds[i].equals(userId)) {
+                    return tickets[i];
+                }
+            }
+            return 0;
+        }
+
+        public void forEachPassenger(ObjIntConsumer<String> action) {
+            for (int i = 0; i < userIds.length; i++) {
+                action.accept(userIds[i], tickets[i]);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s | %-15s -> %-15s | Dep: %s | Passengers: %d",
+                    flightNumber, fromCity, toCity, getDepartureTime(), userIds.length);
+        }
+    }
+
+    // An interned city or gate and how many retained flights use it; dropped with the last one
+    private static final class Place {
+        final String name;
+        int uses;
+
+        Place(String name) {
+            this.name = name;
+        }
+    }
+
+    private record Key(long departureMinute, String flightNumber) implements Comparable<Key> {
+        @Override
+        public int compareTo(Key other) {
+            int byTime = Long.compare(departureMinute, other.departureMinute);
+            return byTime != 0 ? byTime : flightNumber.compareTo(other.flightNumber);
+        }
+    }
+
+    private final Duration retention;
+    private final NavigableMap<Key, ArchivedFlight> byDeparture = new TreeMap<>();
+    private final Map<String, List<ArchivedFlight>> byFlightNumber = new HashMap<>();
+    private final Map<String, List<ArchivedFlight>> byCustomer = new HashMap<>();
+    private final Map<String, Place> places = new HashMap<>(); // interned cities and gates
+    private final Path path;
+    private FileChannel channel;
+    private DataOutputStream out;
+    private long fileRecords; // records in the file, expired or not
+
+    public FlightArchive(Duration retention) {
+        this(retention, null);
+    }
+
+    private FlightArchive(Duration retention, Path path) {
+        if (retention.isNegative()) {
+            throw new IllegalArgumentException("Retention cannot be negative");
+        }
+        this.retention = retention;
+        this.path = path;
+    }
+
+    // Loads the retained flights from the file, truncates a torn or corrupt tail left by a
+    // crash and appends from there
+    public static FlightArchive open(Path path, Duration retention) throws IOException {
+        FlightArchive archive = new FlightArchive(retention, path);
+        synchronized (archive) {
+            if (Files.exists(path) && Files.size(path) > 0) {
+                archive.truncate(archive.load());
+                archive.openAppender();
+                archive.compactIfDue();
+            } else {
+                archive.rewrite();
+            }
+        }
+        return archive;
+    }
+
+    // Streams the file's records, indexing the retained flights; returns where the intact
+    // records end
+    private long load() throws IOException {
+        long cutoff = cutoff();
+        long validEnd = FILE_HEADER_SIZE;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a flight archive");
+            }
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD_SIZE) {
+                    break;
+                }
+                byte[] record = new byte[length];
+                ArchivedFlight flight;
+                try {
+                    int crc = in.readInt();
+                    in.readFully(record);
+                    if (checksum(record) != crc) {
+                        break;
+                    }
+                    flight = decode(record);
+                } catch (EOFException | UTFDataFormatException e) {
+                    break;
+                }
+                validEnd += RECORD_HEADER_SIZE + length;
+                fileRecords++;
+                if (flight.departureMinute >= cutoff) {
+                    index(flight);
+                }
+            }
+        }
+        return validEnd;
+    }
+
+    private void truncate(long validEnd) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            if (channel.size() > validEnd) {
+                channel.truncate(validEnd);
+                channel.force(true);
+            }
+        }
+    }
+
+    private void compactIfDue() throws IOException {
+        if (out != null && fileRecords - byDeparture.size() > Math.max(MIN_COMPACTION_RECORDS, byDeparture.size())) {
+            rewrite();
+        }
+    }
+
+    // Writes the retained flights to a fresh file and swaps it in for the old one
+    private void rewrite() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             DataOutputStream copy = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+            copy.writeInt(MAGIC);
+            for (ArchivedFlight flight : byDeparture.values()) {
+                write(copy, flight);
+            }
+            copy.flush();
+            channel.force(true);
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        openAppender();
+        fileRecords = byDeparture.size();
+    }
+
+    private void openAppender() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+    }
+
+    // Adds a landed flight with its final passenger list; false if it is already archived.
+    // The record is on disk when this returns, so the caller can journal the archival.
+    public synchronized boolean add(Flight flight, BookingLedger<Customer> passengers) throws IOException {
+        String[] userIds = new String[passengers.size()];
+        short[] tickets = new short[userIds.length];
+        int[] next = {0};
+        passengers.forEach((customer, count) -> {
+            userIds[next[0]] = customer.getUserID();
+            tickets[next[0]++] = (short) count;
+        });
+        ArchivedFlight archived = new ArchivedFlight(flight.getFlightNumber(), intern(flight.getFromCity()),
+                intern(flight.getToCity()), intern(flight.getGate()), minuteOf(flight.getDepartureTime()),
+                (int) flight.getFlightDuration().toMinutes(), flight.getTotalSeats(), userIds, tickets);
+        if (!index(archived)) {
+            return false;
+        }
+        if (out != null) {
+            write(out, archived);
+            out.flush();
+            channel.force(false);
+            fileRecords++;
+        }
+        evictExpired();
+        compactIfDue();
+        return true;
+    }
+
+    public synchronized List<ArchivedFlight> findByFlightNumber(String flightNumber) {
+        return List.copyOf(byFlightNumber.getOrDefault(flightNumber.trim().toUpperCase(Locale.ROOT), List.of()));
+    }
+
+    // Archived flights the customer travelled on, in the order they landed
+    public synchronized List<ArchivedFlight> historyOf(String userId) {
+        return List.copyOf(byCustomer.getOrDefault(userId, List.of()));
+    }
+
+    public synchronized List<ArchivedFlight> departedBetween(LocalDateTime start, LocalDateTime end) {
+        return List.copyOf(byDeparture.subMap(new Key(minuteOf(start), ""), true,
+                new Key(minuteOf(end), "\uFFFF"), true).values());
+    }
+
+    public synchronized int size() {
+        return byDeparture.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (out != null) {
+            out.close();
+        }
+    }
+
+    private boolean index(ArchivedFlight flight) {
+        if (byDeparture.putIfAbsent(new Key(flight.departureMinute, flight.flightNumber), flight) != null) {
+            return false;
+        }
+        byFlightNumber.computeIfAbsent(flight.flightNumber, number -> new ArrayList<>()).add(flight);
+        for (String userId : flight.userIds) {
+            byCustomer.computeIfAbsent(userId, id -> new ArrayList<>()).add(flight);
+        }
+        retain(flight.fromCity);
+        retain(flight.toCity);
+        retain(flight.gate);
+        return true;
+    }
+
+    private long cutoff() {
+        return minuteOf(LocalDateTime.now().minus(retention));
+    }
+
+    private void evictExpired() {
+        long cutoff = cutoff();
+        while (!byDeparture.isEmpty() && byDeparture.firstKey().departureMinute() < cutoff) {
+            ArchivedFlight flight = byDeparture.pollFirstEntry().getValue();
+            unindex(byFlightNumber, flight.flightNumber, flight);
+            for (String userId : flight.userIds) {
+                unindex(byCustomer, userId, flight);
+            }
+            release(flight.fromCity);
+            release(flight.toCity);
+            release(flight.gate);
+        }
+    }
+
+    private static void unindex(Map<String, List<ArchivedFlight>> index, String key, ArchivedFlight flight) {
+        List<ArchivedFlight> flights = index.get(key);
+        if (flights != null && flights.remove(flight) && flights.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // Shares the copy a retained flight already holds; counted only once the flight is indexed
+    private String intern(String place) {
+        Place interned = places.get(place);
+        return interned != null ? interned.name : place;
+    }
+
+    private void retain(String place) {
+        places.computeIfAbsent(place, Place::new).uses++;
+    }
+
+    private void release(String place) {
+        Place interned = places.get(place);
+        if (interned != null && --interned.uses == 0) {
+            places.remove(place);
+        }
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    // Record framing: [length][crc32c][body]
+    private static void write(DataOutputStream out, ArchivedFlight flight) throws IOException {
+        byte[] record = encode(flight);
+        out.writeInt(record.length);
+        out.writeInt(checksum(record));
+        out.write(record);
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record, 0, record.length);
+        return (int) crc.getValue();
+    }
+
+    // Record body: flight number, from, to, gate (UTF), departure minute (long), duration and
+    // seats (int), passenger count, then (user ID, tickets) pairs
+    private static byte[] encode(ArchivedFlight flight) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 + flight.userIds.length * 12);
+        DataOutputStream record = new DataOutputStream(bytes);
+        record.writeUTF(flight.flightNumber);
+        record.writeUTF(flight.fromCity);
+        record.writeUTF(flight.toCity);
+        record.writeUTF(flight.gate);
+        record.writeLong(flight.departureMinute);
+        record.writeInt(flight.durationMinutes);
+        record.writeInt(flight.totalSeats);
+        record.writeInt(flight.userIds.length);
+        for (int i = 0; i < flight.userIds.length; i++) {
+            record.writeUTF(flight.userIds[i]);
+            record.writeShort(flight.tickets[i]);
+        }
+        return bytes.toByteArray();
+    }
+
+    private ArchivedFlight decode(byte[] bytes) throws IOException {
+        DataInputStream record = new DataInputStream(new ByteArrayInputStream(bytes));
+        String flightNumber = record.readUTF();
+        String fromCity = intern(record.readUTF());
+        String toCity = intern(record.readUTF());
+        String gate = intern(record.readUTF());
+        long departureMinute = record.readLong();
+        int durationMinutes = record.readInt();
+        int totalSeats = record.readInt();
+        String[] userIds = new String[record.readInt()];
+        short[] tickets = new short[userIds.length];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = record.readUTF();
+            tickets[i] = record.readShort();
+        }
+        return new ArchivedFlight(flightNumber, fromCity, toCity, gate, departureMinute, durationMinutes,
+                totalSeats, userIds, tickets);
+    }
+}
@@ -0,0 +1,193 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Moves flights out of the live registry once they have landed. Every registered flight is
+// filed in a hierarchical timing wheel by the minute after its arrival: four levels of 64 slots
+// cover one minute, about an hour, three days and six months per slot, and a flight drops a
+// level each time the wheel passes into its slot's range. Filing and expiry are O(1) per flight
+// and a tick only touches the slots it passes, however many flights are scheduled. A flight
+// cancelled before it lands is taken out of its slot straight away.
+// A background thread ticks the wheel every minute and archives whatever expired as one batch.
+public class FlightArchiver implements AutoCloseable {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = 4;
+    private static final Duration TICK = Duration.ofMinutes(1);
+
+    private final List<Set<Flight>> wheel = new ArrayList<>(LEVELS * SLOTS);
+    private final Set<Flight> overflow = new LinkedHashSet<>(); // beyond the top level, about 32 years out
+    private final Set<Flight> due = new LinkedHashSet<>();      // already landed when filed
+    private final Set<Flight> retries = new LinkedHashSet<>();  // unpublished, not yet in the archive
+    private long currentTick;
+    private volatile FlightArchive archive = new FlightArchive(FlightArchive.DEFAULT_RETENTION);
+    private ScheduledExecutorService ticker;
+
+    FlightArchiver() {
+        for (int i = 0; i < LEVELS * SLOTS; i++) {
+            wheel.add(new LinkedHashSet<>());
+        }
+        currentTick = tickOf(LocalDateTime.now());
+    }
+
+    public FlightArchive getArchive() { return archive; }
+
+    // Swaps in a persistent archive; call before the journal is replayed so replayed
+    // archivals land in it
+    public void setArchive(FlightArchive archive) {
+        this.archive = Objects.requireNonNull(archive);
+    }
+
+    public synchronized void start() {
+        if (ticker != null) {
+            return;
+        }
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "flight-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, 0, TICK.toSeconds(), TimeUnit.SECONDS);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+            ticker = null;
+        }
+    }
+
+    synchronized void schedule(Flight flight) {
+        file(flight, expiryTick(flight));
+    }
+
+    // Filing only ever moves a flight between the slots its expiry maps to, one per level
+    synchronized void unschedule(Flight flight) {
+        if (due.remove(flight) || overflow.remove(flight)) {
+            return;
+        }
+        long expiry = expiryTick(flight);
+        for (int level = 0; level < LEVELS; level++) {
+            if (slot(level, expiry).remove(flight)) {
+                return;
+            }
+        }
+    }
+
+    // Archives every flight that has landed by now and returns how many were moved
+    public int archiveDue() {
+        return archiveDue(LocalDateTime.now());
+    }
+
+    public int archiveDue(LocalDateTime now) {
+        return archive(advanceTo(tickOf(now)));
+    }
+
+    // Unpublishes the flights in one pass, then takes each on its own: it is closed to bookings,
+    // filed with its final manifest and only then detached from its passengers' itineraries and
+    // journaled. A flight the archive can't take stays closed and unpublished, still on its
+    // passengers' itineraries and still live in the journal, and is retried with the next batch;
+    // the rest of the batch goes ahead. Flights that were removed or replaced since they were
+    // scheduled are skipped.
+    int archive(List<Flight> flights) {
+        List<Flight> batch = new ArrayList<>(Flight.removeFlights(flights));
+        synchronized (this) {
+            batch.addAll(retries);
+            retries.clear();
+        }
+        int archived = 0;
+        IOException failure = null;
+        for (Flight flight : batch) {
+            BookingLedger<Customer> manifest = flight.closeBookings();
+            try {
+                archive.add(flight, manifest);
+            } catch (IOException e) {
+                synchronized (this) {
+                    retries.add(flight);
+                }
+                if (failure == null) {
+                    failure = e;
+                }
+                continue;
+            }
+            flight.detach(manifest);
+            BookingJournal.recordArchival(flight);
+            archived++;
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Could not write flight archive", failure);
+        }
+        return archived;
+    }
+
+    private void tick() {
+        try {
+            archiveDue();
+        } catch (RuntimeException e) {
+            System.err.println("Flight archiving failed: " + e.getMessage());
+        }
+    }
+
+    // Turns the wheel up to the given minute and returns the flights that expired on the way
+    private synchronized List<Flight> advanceTo(long tick) {
+        List<Flight> expired = new ArrayList<>(due);
+        due.clear();
+        while (currentTick < tick) {
+            currentTick++;
+            // Entering a new range at a level re-files that slot's flights one or more levels down
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) == 0) {
+                    cascade(slot(level, currentTick));
+                }
+            }
+            if ((currentTick & ((1L << (SLOT_BITS * LEVELS)) - 1)) == 0) {
+                cascade(overflow);
+            }
+            Set<Flight> landed = slot(0, currentTick);
+            expired.addAll(landed);
+            landed.clear();
+            expired.addAll(due);
+            due.clear();
+        }
+        return expired;
+    }
+
+    private void cascade(Set<Flight> slot) {
+        List<Flight> flights = new ArrayList<>(slot);
+        slot.clear();
+        for (Flight flight : flights) {
+            file(flight, expiryTick(flight));
+        }
+    }
+
+    private void file(Flight flight, long expiry) {
+        long delta = expiry - currentTick;
+        if (delta <= 0) {
+            due.add(flight);
+            return;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            if (delta < 1L << (SLOT_BITS * (level + 1))) {
+                slot(level, expiry).add(flight);
+                return;
+            }
+        }
+        overflow.add(flight);
+    }
+
+    private Set<Flight> slot(int level, long tick) {
+        return wheel.get(level * SLOTS + (int) ((tick >>> (SLOT_BITS * level)) & (SLOTS - 1)));
+    }
+
+    // The first whole minute after landing
+    private static long expiryTick(Flight flight) {
+        return tickOf(flight.getArrivalTime()) + 1;
+    }
+
+    private static long tickOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), TICK.toSeconds());
+    }
+}
@@ -4,7 +4,11 @@ public abstract class FlightDistance {
 
     public abstract String toString(int i);
 
-    public String[] calculateDistance(double lat1, double lon1, double lat2, double lon2) {
+    public static double calculateNauticalMiles(double lat1, double lon1, double lat2, double lon2) {
+        return calculateDistanceInMiles(lat1, lon1, lat2, lon2) * MILES_TO_NAUTICAL;
+    }
+
+    public static String[] calculateDistance(double lat1, double lon1, double lat2, double lon2) {
         double distanceMiles = calculateDistanceInMiles(lat1, lon1, lat2, lon2);
         return new String[] {
                 String.format("%.2f", distanceMiles * MILES_TO_NAUTICAL),
@@ -13,7 +17,7 @@ public abstract class FlightDistance {
         };
     }
 
-    private double calculateDistanceInMiles(double lat1, double lon1, double lat2, double lon2) {
+    private static double calculateDistanceInMiles(double lat1, double lon1, double lat2, double lon2) {
         double theta = lon1 - lon2;
         double distance = Math.sin(degreeToRadian(lat1)) * Math.sin(degreeToRadian(lat2))
                 + Math.cos(degreeToRadian(lat1)) * Math.cos(degreeToRadian(lat2))
@@ -23,11 +27,11 @@ public abstract class FlightDistance {
         return distance * 60 * 1.1515;
     }
 
-    private double degreeToRadian(double deg) {
+    private static double degreeToRadian(double deg) {
         return deg * Math.PI / 180.0;
     }
 
-    private double radianToDegree(double rad) {
+    private static double radianToDegree(double rad) {
         return rad * 180.0 / Math.PI;
     }
 
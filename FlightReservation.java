@@ -1,162 +1,312 @@
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.stream.Collectors;
 
 public class FlightReservation implements DisplayClass {
-    private static final int MAX_TICKETS_PER_BOOKING = 10;
+    static final int MAX_TICKETS_PER_BOOKING = 10;
 
-    public void bookFlight(String flightNo, int tickets, String userId) {
+    private final ShardedBookingEngine engine; // null applies bookings on the caller's thread
+
+    // Uses the sharded engine when airline.bookingShards is set
+    public FlightReservation() {
+        this(ShardedBookingEngine.configured().orElse(null));
+    }
+
+    public FlightReservation(ShardedBookingEngine engine) {
+        this.engine = engine;
+    }
+
+    public BookingStatus bookFlight(String flightNo, int tickets, String userId) {
+        BookingStatus status = book(flightNo, tickets, userId);
+        printStatus(status, flightNo, tickets, userId);
+        return status;
+    }
+
+    public BookingStatus joinWaitlist(String flightNo, int tickets, String userId) {
+        BookingStatus status = bookOrWaitlist(flightNo, tickets, userId, Waitlist.Tier.STANDARD);
+        printStatus(status, flightNo, tickets, userId);
+        return status;
+    }
+
+    private void printStatus(BookingStatus status, String flightNo, int tickets, String userId) {
+        switch (status) {
+            case BOOKED -> {
+                System.out.printf("Successfully booked %d tickets on flight %s%n", tickets, flightNo);
+                findFlight(flightNo).ifPresent(flight -> findCustomer(userId).ifPresent(customer ->
+                        System.out.println("Your seats: " + String.join(" ", flight.getSeatsFor(customer)))));
+            }
+            case WAITLISTED -> waitlistPosition(userId, flightNo).ifPresentOrElse(
+                    position -> System.out.printf("Waitlisted on flight %s at position %d%n", flightNo, position),
+                    () -> System.out.printf("Booked from the waitlist on flight %s%n", flightNo));
+            case SOLD_OUT -> System.out.println("Not enough available seats");
+            case BUSY -> System.out.println("System busy, please try again");
+            case INVALID_TICKETS -> System.out.printf("Ticket count must be between 1-%d%n", MAX_TICKETS_PER_BOOKING);
+            default -> System.out.println("Invalid flight number or user ID");
+        }
+    }
+
+    // Non-interactive booking; BOOKED means the booking is durable in the journal
+    public BookingStatus book(String flightNo, int tickets, String userId) {
+        if (engine != null) {
+            return await(engine.book(flightNo, tickets, userId));
+        }
+        long start = System.nanoTime();
+        BookingStatus status = applyBooking(flightNo, tickets, userId);
+        if (status == BookingStatus.BOOKED) {
+            BookingJournal.sync();
+        }
+        Metrics.recordBooking(Metrics.Operation.BOOK, start, status);
+        return status;
+    }
+
+    // Completes once the booking is durable, without blocking the caller on a sharded engine
+    public CompletableFuture<BookingStatus> bookAsync(String flightNo, int tickets, String userId) {
+        if (engine != null) {
+            return engine.book(flightNo, tickets, userId);
+        }
+        return CompletableFuture.completedFuture(book(flightNo, tickets, userId));
+    }
+
+    // Applies a booking without waiting for the journal; the caller syncs
+    BookingStatus applyBooking(String flightNo, int tickets, String userId) {
         Optional<Flight> flightOpt = findFlight(flightNo);
         Optional<Customer> customerOpt = findCustomer(userId);
 
-        if (flightOpt.isEmpty() || customerOpt.isEmpty()) {
-            System.out.println("Invalid flight number or user ID");
-            return;
+        BookingStatus invalid = validate(flightOpt, customerOpt, tickets);
+        if (invalid != null) {
+            return invalid;
+        }
+        if (!flightOpt.get().bookSeats(customerOpt.get(), tickets)) {
+            return flightOpt.get().isClosed() ? BookingStatus.INVALID_FLIGHT
+                    : customerOpt.get().isRemoved() ? BookingStatus.INVALID_CUSTOMER : BookingStatus.SOLD_OUT;
         }
+        return BookingStatus.BOOKED;
+    }
 
-        Flight flight = flightOpt.get();
-        Customer customer = customerOpt.get();
+    // Books when seats are free and nobody is queued ahead, otherwise joins the flight's waitlist.
+    // Waitlisted requests are booked, and journaled, as cancellations free seats.
+    public BookingStatus bookOrWaitlist(String flightNo, int tickets, String userId, Waitlist.Tier tier) {
+        long start = System.nanoTime();
+        Optional<Flight> flightOpt = findFlight(flightNo);
+        Optional<Customer> customerOpt = findCustomer(userId);
 
-        if (tickets <= 0 || tickets > MAX_TICKETS_PER_BOOKING) {
-            System.out.printf("Ticket count must be between 1-%d%n", MAX_TICKETS_PER_BOOKING);
-            return;
+        BookingStatus status = validate(flightOpt, customerOpt, tickets);
+        if (status == null) {
+            status = flightOpt.get().getWaitlist().join(customerOpt.get(), tickets, tier);
+            if (status == BookingStatus.BOOKED) {
+                BookingJournal.sync();
+            }
         }
+        Metrics.recordBooking(Metrics.Operation.BOOK, start, status);
+        return status;
+    }
 
-        if (flight.getAvailableSeats() < tickets) {
-            System.out.println("Not enough available seats");
-            return;
-        }
+    public boolean leaveWaitlist(String userId, String flightNo) {
+        Optional<Customer> customer = findCustomer(userId);
+        return customer.isPresent()
+                && findFlight(flightNo).map(flight -> flight.getWaitlist().leave(customer.get())).orElse(false);
+    }
 
-        flight.bookSeats(customer, tickets);
-        System.out.printf("Successfully booked %d tickets on flight %s%n", tickets, flightNo);
+    public OptionalInt waitlistPosition(String userId, String flightNo) {
+        Optional<Customer> customer = findCustomer(userId);
+        Optional<Flight> flight = findFlight(flightNo);
+        if (customer.isEmpty() || flight.isEmpty()) {
+            return OptionalInt.empty();
+        }
+        return flight.get().getWaitlist().positionOf(customer.get());
     }
 
-    public void cancelBooking(String userId) {
-        Optional<Customer> customerOpt = findCustomer(userId);
+    // Null when the request is well-formed
+    private static BookingStatus validate(Optional<Flight> flightOpt, Optional<Customer> customerOpt, int tickets) {
+        if (flightOpt.isEmpty()) {
+            return BookingStatus.INVALID_FLIGHT;
+        }
         if (customerOpt.isEmpty()) {
-            System.out.println("User not found");
-            return;
+            return BookingStatus.INVALID_CUSTOMER;
         }
+        if (tickets <= 0 || tickets > MAX_TICKETS_PER_BOOKING) {
+            return BookingStatus.INVALID_TICKETS;
+        }
+        return null;
+    }
 
-        Customer customer = customerOpt.get();
-        if (customer.getFlights().isEmpty()) {
-            System.out.println("No bookings to cancel");
-            return;
+    // Applies a burst of bookings, settling each flight's seats with a single reservation.
+    // Requests on the same flight are served in submission order, as if booked one by one.
+    public List<BookingResult> bookFlights(Collection<BookingRequest> requests) {
+        long start = System.nanoTime();
+        List<BookingRequest> pending = new ArrayList<>(requests);
+        BookingStatus[] statuses = new BookingStatus[pending.size()];
+        Customer[] customers = new Customer[pending.size()];
+        Map<Flight, List<Integer>> requestsByFlight = new LinkedHashMap<>();
+
+        for (int i = 0; i < pending.size(); i++) {
+            BookingRequest request = pending.get(i);
+            Optional<Flight> flightOpt = findFlight(request.flightNumber());
+            Optional<Customer> customerOpt = findCustomer(request.userId());
+
+            if (flightOpt.isEmpty()) {
+                statuses[i] = BookingStatus.INVALID_FLIGHT;
+            } else if (customerOpt.isEmpty()) {
+                statuses[i] = BookingStatus.INVALID_CUSTOMER;
+            } else if (request.tickets() <= 0 || request.tickets() > MAX_TICKETS_PER_BOOKING) {
+                statuses[i] = BookingStatus.INVALID_TICKETS;
+            } else {
+                customers[i] = customerOpt.get();
+                requestsByFlight.computeIfAbsent(flightOpt.get(), f -> new ArrayList<>()).add(i);
+            }
         }
 
-        displayUserFlights(customer);
+        requestsByFlight.forEach((flight, indexes) -> {
+            int demand = 0;
+            for (int i : indexes) {
+                demand += pending.get(i).tickets();
+            }
 
-        Scanner scanner = new Scanner(System.in);
-        System.out.print("Enter flight number to cancel: ");
-        String flightNo = scanner.nextLine();
+            int remaining = flight.reserveUpTo(demand);
+            for (int i : indexes) {
+                int tickets = pending.get(i).tickets();
+                if (tickets > remaining) {
+                    statuses[i] = BookingStatus.SOLD_OUT;
+                } else if (flight.recordBooking(customers[i], tickets)) {
+                    remaining -= tickets;
+                    statuses[i] = BookingStatus.BOOKED;
+                } else {
+                    statuses[i] = flight.isClosed() ? BookingStatus.INVALID_FLIGHT : BookingStatus.INVALID_CUSTOMER;
+                }
+            }
+
+            if (remaining > 0) {
+                flight.getWaitlist().release(remaining);
+            }
+        });
+
+        if (!requestsByFlight.isEmpty()) {
+            BookingJournal.sync();
+        }
 
+        List<BookingResult> results = new ArrayList<>(pending.size());
+        for (int i = 0; i < pending.size(); i++) {
+            results.add(new BookingResult(pending.get(i), statuses[i]));
+            Metrics.recordOutcome(statuses[i]);
+        }
+        Metrics.record(Metrics.Operation.BATCH_BOOK, start, true);
+        return results;
+    }
+
+    // Non-interactive cancellation; NOT_BOOKED when the customer holds fewer tickets on the flight.
+    // Freed seats go to the flight's waitlist first, and the journal sync covers any promotions.
+    public BookingStatus cancel(String userId, String flightNo, int tickets) {
+        if (engine != null) {
+            return await(engine.cancel(userId, flightNo, tickets));
+        }
+        long start = System.nanoTime();
+        BookingStatus status = applyCancellation(userId, flightNo, tickets);
+        if (status == BookingStatus.CANCELLED) {
+            BookingJournal.sync();
+        }
+        Metrics.recordBooking(Metrics.Operation.CANCEL, start, status);
+        return status;
+    }
+
+    public CompletableFuture<BookingStatus> cancelAsync(String userId, String flightNo, int tickets) {
+        if (engine != null) {
+            return engine.cancel(userId, flightNo, tickets);
+        }
+        return CompletableFuture.completedFuture(cancel(userId, flightNo, tickets));
+    }
+
+    BookingStatus applyCancellation(String userId, String flightNo, int tickets) {
+        Optional<Customer> customerOpt = findCustomer(userId);
         Optional<Flight> flightOpt = findFlight(flightNo);
+
+        if (customerOpt.isEmpty()) {
+            return BookingStatus.INVALID_CUSTOMER;
+        }
         if (flightOpt.isEmpty()) {
-            System.out.println("Invalid flight number");
-            return;
+            return BookingStatus.INVALID_FLIGHT;
         }
-
-        Flight flight = flightOpt.get();
-        int index = customer.getFlights().indexOf(flight);
-        if (index == -1) {
-            System.out.println("No booking found for this flight");
-            return;
+        if (tickets <= 0) {
+            return BookingStatus.INVALID_TICKETS;
         }
+        if (!flightOpt.get().cancelSeats(customerOpt.get(), tickets)) {
+            return BookingStatus.NOT_BOOKED;
+        }
+        return BookingStatus.CANCELLED;
+    }
 
-        System.out.print("Enter number of tickets to cancel: ");
-        int tickets = scanner.nextInt();
-        int bookedTickets = customer.getTicketsBooked().get(index);
+    // Cancels the flight and every booking on it; empty if no such flight is scheduled
+    public Optional<BookingLedger<Customer>> cancelFlight(String flightNo) {
+        Optional<Flight> flight = findFlight(flightNo);
+        if (flight.isEmpty()) {
+            return Optional.empty();
+        }
+        Map<Flight, BookingLedger<Customer>> cancelled = Flight.cancelFlights(List.of(flight.get()));
+        BookingJournal.sync();
+        return Optional.ofNullable(cancelled.get(flight.get()));
+    }
 
-        if (tickets <= 0 || tickets > bookedTickets) {
-            System.out.printf("Must cancel between 1-%d tickets%n", bookedTickets);
-            return;
+    // Airport closure: cancels every flight from or to the city, with the passengers each had
+    public Map<Flight, BookingLedger<Customer>> cancelFlightsServing(String city) {
+        Map<Flight, BookingLedger<Customer>> cancelled =
+                Flight.cancelFlights(Flight.getRouteIndex().flightsServing(city));
+        if (!cancelled.isEmpty()) {
+            BookingJournal.sync();
         }
+        return cancelled;
+    }
 
-        if (tickets == bookedTickets) {
-            customer.getFlights().remove(index);
-            customer.getTicketsBooked().remove(index);
-        } else {
-            customer.getTicketsBooked().set(index, bookedTickets - tickets);
+    // Deletes the account and cancels its bookings through its own booking ledger, so only
+    // the flights it booked are touched; the freed seats go to those flights' waitlists
+    public boolean deleteCustomer(String userId) {
+        Optional<Customer> customerOpt = findCustomer(userId);
+        if (customerOpt.isEmpty() || !Customer.removeCustomer(customerOpt.get())) {
+            return false;
         }
+        Customer customer = customerOpt.get();
+        customer.markRemoved().forEach((flight, tickets) -> flight.cancelSeats(customer, tickets));
+        BookingJournal.recordRemoval(customer);
+        BookingEvents.live().customerRemoved(customer);
+        BookingJournal.sync();
+        RolesAndPermissions.getSessions().closeAll(customer.getUserID(), RolesAndPermissions.Role.CUSTOMER);
+        return true;
+    }
 
-        flight.setAvailableSeats(flight.getAvailableSeats() + tickets);
-        System.out.printf("Cancelled %d tickets on flight %s%n", tickets, flightNo);
+    private static BookingStatus await(CompletableFuture<BookingStatus> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
     }
 
     // Helper methods
     private Optional<Flight> findFlight(String flightNo) {
-        return Flight.getAllFlights().stream()
-                .filter(f -> f.getFlightNumber().equalsIgnoreCase(flightNo))
-                .findFirst();
+        return Flight.findFlight(flightNo);
     }
 
     private Optional<Customer> findCustomer(String userId) {
-        return Customer.getAllCustomers().stream()
-                .filter(c -> c.getUserID().equals(userId))
-                .findFirst();
+        return Customer.findCustomer(userId);
     }
 
-    // DisplayClass implementation
+    // DisplayClass implementation, rendered by the report engine
     @Override
     public void displayRegisteredUsersForAllFlight() {
-        Flight.getAllFlights().forEach(flight -> {
-            if (!flight.getPassengers().isEmpty()) {
-                displayFlightPassengers(flight);
-            }
-        });
+        ReportEngine.console().displayRegisteredUsersForAllFlight();
     }
 
     @Override
     public void displayRegisteredUsersForASpecificFlight(String flightNum) {
-        findFlight(flightNum).ifPresentOrElse(
-                this::displayFlightPassengers,
-                () -> System.out.println("Flight not found")
-        );
+        ReportEngine.console().displayRegisteredUsersForASpecificFlight(flightNum);
     }
 
     @Override
     public void displayFlightsRegisteredByOneUser(String userId) {
-        findCustomer(userId).ifPresentOrElse(
-                this::displayUserFlights,
-                () -> System.out.println("User not found")
-        );
-    }
-
-    private void displayFlightPassengers(Flight flight) {
-        System.out.printf("%n=== Passengers on Flight %s ===%n", flight.getFlightNumber());
-        System.out.printf("%-15s | %-20s | %-5s | %-10s%n",
-                "User ID", "Name", "Age", "Tickets");
-
-        for (int i = 0; i < flight.getPassengers().size(); i++) {
-            Customer passenger = flight.getPassengers().get(i);
-            int tickets = passenger.getTicketsBooked().get(
-                    passenger.getFlights().indexOf(flight));
-
-            System.out.printf("%-15s | %-20s | %-5d | %-10d%n",
-                    passenger.getUserID(),
-                    passenger.getName(),
-                    passenger.getAge(),
-                    tickets);
-        }
-    }
-
-    private void displayUserFlights(Customer customer) {
-        System.out.printf("%n=== Bookings for %s ===%n", customer.getName());
-        System.out.printf("%-10s | %-15s -> %-15s | %-15s | %-5s%n",
-                "Flight", "From", "To", "Departure", "Tickets");
-
-        for (int i = 0; i < customer.getFlights().size(); i++) {
-            Flight flight = customer.getFlights().get(i);
-            System.out.printf("%-10s | %-15s -> %-15s | %-15s | %-5d%n",
-                    flight.getFlightNumber(),
-                    flight.getFromCity(),
-                    flight.getToCity(),
-                    flight.getDepartureTime().format(DateTimeFormatter.ISO_LOCAL_DATE),
-                    customer.getTicketsBooked().get(i));
-        }
+        ReportEngine.console().displayFlightsRegisteredByOneUser(userId);
     }
 
     @Override
     public void displayHeaderForUsers(Flight flight, List<Customer> customers) {
-        displayFlightPassengers(flight);
+        ReportEngine.console().displayHeaderForUsers(flight, customers);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,397 @@
+import java.time.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+// Struct-of-arrays flight schedule for data sets too large to hold as Flight objects, such as a
+// year of global schedules. A flight is an int ID and its fields live in parallel primitive
+// columns: the flight number packed into an int, cities and gates interned to int IDs,
+// departure in epoch minutes, duration in minutes and the two seat counts. That is 32 bytes a
+// flight plus its number index slots, against well over a kilobyte for a Flight with its
+// strings, times, ledger, seat map and waitlist.
+// Columns are allocated in fixed chunks that never move, so the store grows without copying
+// and seat updates stay lock-free; searches and aggregates walk the columns in order.
+// Readers run concurrently with one writer at a time: a flight is visible once add returns.
+// A View gives one stored flight the read API of Flight without materializing it. Flights are
+// validated like Flight's public constructors. The store sells seats only; passenger manifests
+// stay with the Flight model. ScheduleImporter loads into a store with --store.
+public class FlightStore {
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int MAX_FLIGHTS = Integer.MAX_VALUE - CHUNK_SIZE;
+
+    private static final class Chunk {
+        final int[] flightNumbers = new int[CHUNK_SIZE];
+        final int[] fromCities = new int[CHUNK_SIZE];
+        final int[] toCities = new int[CHUNK_SIZE];
+        final int[] gates = new int[CHUNK_SIZE];
+        final int[] departures = new int[CHUNK_SIZE];   // epoch minutes, UTC
+        final int[] durations = new int[CHUNK_SIZE];    // minutes
+        final int[] totalSeats = new int[CHUNK_SIZE];
+        final AtomicIntegerArray availableSeats = new AtomicIntegerArray(CHUNK_SIZE);
+    }
+
+    private volatile Chunk[] chunks = new Chunk[16];
+    private volatile int size; // written last by add, so everything below it is visible
+    private final Map<String, Integer> placeIds = new ConcurrentHashMap<>();
+    private volatile String[] placeNames = new String[64];
+    // Open addressing from packed flight number to ID + 1; replaced whole when it grows
+    private volatile int[][] numberIndex = {new int[1024], new int[1024]};
+
+    // Flight methods
+    public synchronized int add(String flightNumber, String fromCity, String toCity, String gate,
+                                LocalDateTime departureTime, Duration flightDuration, int totalSeats) {
+        int number = encodeFlightNumber(flightNumber);
+        if (find(number) >= 0) {
+            throw new IllegalArgumentException("Flight number already exists");
+        }
+        if (fromCity == null || fromCity.trim().isEmpty() || toCity == null || toCity.trim().isEmpty()) {
+            throw new IllegalArgumentException("City cannot be empty");
+        }
+        if (gate == null || !Flight.GATE_PATTERN.matcher(gate).matches()) {
+            throw new IllegalArgumentException("Invalid gate format");
+        }
+        if (totalSeats < Flight.MIN_SEATS || totalSeats > Flight.MAX_SEATS) {
+            throw new IllegalArgumentException(
+                    String.format("Seats must be between %d-%d", Flight.MIN_SEATS, Flight.MAX_SEATS));
+        }
+        long departure = minuteOf(Flight.validateDepartureTime(departureTime));
+        long duration = Objects.requireNonNull(flightDuration, "Flight duration cannot be null").toMinutes();
+        if (departure != (int) departure || duration < 0 || duration > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Departure time or duration out of range");
+        }
+        int id = size;
+        if (id == MAX_FLIGHTS) {
+            throw new IllegalStateException("Flight store is full");
+        }
+
+        Chunk chunk = chunkFor(id);
+        int slot = id & CHUNK_MASK;
+        chunk.flightNumbers[slot] = number;
+        chunk.fromCities[slot] = intern(fromCity.trim());
+        chunk.toCities[slot] = intern(toCity.trim());
+        chunk.gates[slot] = intern(gate);
+        chunk.departures[slot] = (int) departure;
+        chunk.durations[slot] = (int) duration;
+        chunk.totalSeats[slot] = totalSeats;
+        chunk.availableSeats.set(slot, totalSeats);
+        index(number, id);
+        size = id + 1;
+        return id;
+    }
+
+    // Copies a flight's schedule and current seat count
+    public synchronized int add(Flight flight) {
+        int id = add(flight.getFlightNumber(), flight.getFromCity(), flight.getToCity(), flight.getGate(),
+                flight.getDepartureTime(), flight.getFlightDuration(), flight.getTotalSeats());
+        chunkFor(id).availableSeats.set(id & CHUNK_MASK, flight.getAvailableSeats());
+        return id;
+    }
+
+    public OptionalInt findFlight(String flightNumber) {
+        if (flightNumber == null) {
+            return OptionalInt.empty();
+        }
+        int number;
+        try {
+            number = encodeFlightNumber(flightNumber.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return OptionalInt.empty();
+        }
+        int id = find(number);
+        return id < 0 ? OptionalInt.empty() : OptionalInt.of(id);
+    }
+
+    public Optional<View> findView(String flightNumber) {
+        OptionalInt id = findFlight(flightNumber);
+        return id.isPresent() ? Optional.of(new View(id.getAsInt())) : Optional.empty();
+    }
+
+    public View view(int flight) {
+        chunk(flight);
+        return new View(flight);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Flyweight over one stored flight: just its ID, reading through to the columns
+    public final class View {
+        private final int id;
+
+        private View(int id) {
+            this.id = id;
+        }
+
+        public int getId() { return id; }
+        public String getFlightNumber() { return FlightStore.this.getFlightNumber(id); }
+        public String getFromCity() { return FlightStore.this.getFromCity(id); }
+        public String getToCity() { return FlightStore.this.getToCity(id); }
+        public String getGate() { return FlightStore.this.getGate(id); }
+        public LocalDateTime getDepartureTime() { return FlightStore.this.getDepartureTime(id); }
+        public Duration getFlightDuration() { return FlightStore.this.getFlightDuration(id); }
+        public LocalDateTime getArrivalTime() { return FlightStore.this.getArrivalTime(id); }
+        public int getTotalSeats() { return FlightStore.this.getTotalSeats(id); }
+        public int getAvailableSeats() { return FlightStore.this.getAvailableSeats(id); }
+        public boolean bookSeats(int seats) { return FlightStore.this.bookSeats(id, seats); }
+        public void releaseSeats(int seats) { FlightStore.this.releaseSeats(id, seats); }
+
+        @Override
+        public String toString() {
+            return String.format("%-8s | %-15s -> %-15s | Gate: %-4s | Seats: %-3d",
+                    getFlightNumber(), getFromCity(), getToCity(), getGate(), getAvailableSeats());
+        }
+    }
+
+    // Getters, by flight ID
+    public String getFlightNumber(int flight) { return decodeFlightNumber(chunk(flight).flightNumbers[flight & CHUNK_MASK]); }
+    public String getFromCity(int flight) { return placeNames[chunk(flight).fromCities[flight & CHUNK_MASK]]; }
+    public String getToCity(int flight) { return placeNames[chunk(flight).toCities[flight & CHUNK_MASK]]; }
+    public String getGate(int flight) { return placeNames[chunk(flight).gates[flight & CHUNK_MASK]]; }
+    public int getTotalSeats(int flight) { return chunk(flight).totalSeats[flight & CHUNK_MASK]; }
+    public int getAvailableSeats(int flight) { return chunk(flight).availableSeats.get(flight & CHUNK_MASK); }
+
+    public LocalDateTime getDepartureTime(int flight) {
+        return timeOf(chunk(flight).departures[flight & CHUNK_MASK]);
+    }
+
+    public Duration getFlightDuration(int flight) {
+        return Duration.ofMinutes(chunk(flight).durations[flight & CHUNK_MASK]);
+    }
+
+    public LocalDateTime getArrivalTime(int flight) {
+        Chunk chunk = chunk(flight);
+        int slot = flight & CHUNK_MASK;
+        return timeOf((long) chunk.departures[slot] + chunk.durations[slot]);
+    }
+
+    // Seat inventory: the same CAS loop as Flight, on the flight's slot in the seat column
+    public boolean bookSeats(int flight, int seats) {
+        if (seats <= 0) {
+            return false;
+        }
+        AtomicIntegerArray available = chunk(flight).availableSeats;
+        int slot = flight & CHUNK_MASK;
+        int current;
+        do {
+            current = available.get(slot);
+            if (seats > current) {
+                return false;
+            }
+        } while (!available.compareAndSet(slot, current, current - seats));
+        return true;
+    }
+
+    public void releaseSeats(int flight, int seats) {
+        if (seats <= 0) {
+            throw new IllegalArgumentException("Seats to release must be positive");
+        }
+        Chunk chunk = chunk(flight);
+        int slot = flight & CHUNK_MASK;
+        int current;
+        do {
+            current = chunk.availableSeats.get(slot);
+            if (current + seats > chunk.totalSeats[slot]) {
+                throw new IllegalStateException("Cannot release more seats than were booked");
+            }
+        } while (!chunk.availableSeats.compareAndSet(slot, current, current + seats));
+    }
+
+    // Scans
+    // The route's flights departing at or after the given time, earliest first, at most limit
+    public int[] search(String fromCity, String toCity, LocalDateTime after, int limit) {
+        if (limit <= 0) {
+            throw new IllegalArgumentException("Limit must be positive");
+        }
+        Integer from = placeIds.get(fromCity.trim());
+        Integer to = placeIds.get(toCity.trim());
+        if (from == null || to == null) {
+            return new int[0];
+        }
+        long start = minuteOf(after) + (after.getSecond() > 0 || after.getNano() > 0 ? 1 : 0);
+        // (departure << 32 | ID) sorts matches by departure, then by insertion
+        long[] matches = new long[16];
+        int count = 0;
+        int n = size;
+        Chunk[] columns = chunks;
+        for (int c = 0; c << CHUNK_BITS < n; c++) {
+            Chunk chunk = columns[c];
+            int filled = Math.min(CHUNK_SIZE, n - (c << CHUNK_BITS));
+            for (int i = 0; i < filled; i++) {
+                if (chunk.fromCities[i] == from && chunk.toCities[i] == to && chunk.departures[i] >= start) {
+                    if (count == matches.length) {
+                        matches = Arrays.copyOf(matches, count * 2);
+                    }
+                    matches[count++] = (long) chunk.departures[i] << 32 | (c << CHUNK_BITS | i);
+                }
+            }
+        }
+        Arrays.sort(matches, 0, count);
+        int[] flights = new int[Math.min(limit, count)];
+        for (int i = 0; i < flights.length; i++) {
+            flights[i] = (int) matches[i];
+        }
+        return flights;
+    }
+
+    // Flights departing within [start, end], in ID order
+    public int[] departuresBetween(LocalDateTime start, LocalDateTime end) {
+        long first = minuteOf(start) + (start.getSecond() > 0 || start.getNano() > 0 ? 1 : 0);
+        long last = minuteOf(end);
+        int[] flights = new int[16];
+        int count = 0;
+        int n = size;
+        Chunk[] columns = chunks;
+        for (int c = 0; c << CHUNK_BITS < n; c++) {
+            int[] departures = columns[c].departures;
+            int filled = Math.min(CHUNK_SIZE, n - (c << CHUNK_BITS));
+            for (int i = 0; i < filled; i++) {
+                if (departures[i] >= first && departures[i] <= last) {
+                    if (count == flights.length) {
+                        flights = Arrays.copyOf(flights, count * 2);
+                    }
+                    flights[count++] = c << CHUNK_BITS | i;
+                }
+            }
+        }
+        return Arrays.copyOf(flights, count);
+    }
+
+    // Seats sold across every flight in the store
+    public long getBookedSeats() {
+        long booked = 0;
+        int n = size;
+        Chunk[] columns = chunks;
+        for (int c = 0; c << CHUNK_BITS < n; c++) {
+            Chunk chunk = columns[c];
+            int filled = Math.min(CHUNK_SIZE, n - (c << CHUNK_BITS));
+            for (int i = 0; i < filled; i++) {
+                booked += chunk.totalSeats[i] - chunk.availableSeats.get(i);
+            }
+        }
+        return booked;
+    }
+
+    // Internals
+    private Chunk chunk(int flight) {
+        if (flight < 0 || flight >= size) {
+            throw new IllegalArgumentException("Unknown flight ID " + flight);
+        }
+        return chunks[flight >>> CHUNK_BITS];
+    }
+
+    // Writer only
+    private Chunk chunkFor(int id) {
+        int c = id >>> CHUNK_BITS;
+        Chunk[] columns = chunks;
+        if (c == columns.length) {
+            columns = Arrays.copyOf(columns, columns.length * 2);
+        }
+        if (columns[c] == null) {
+            columns[c] = new Chunk();
+            chunks = columns;
+        }
+        return columns[c];
+    }
+
+    private int intern(String place) {
+        Integer id = placeIds.get(place);
+        if (id != null) {
+            return id;
+        }
+        int next = placeIds.size();
+        String[] names = placeNames;
+        if (next == names.length) {
+            names = Arrays.copyOf(names, names.length * 2);
+        }
+        names[next] = place;
+        placeNames = names;
+        placeIds.put(place, next);
+        return next;
+    }
+
+    private int find(int number) {
+        int[][] index = numberIndex;
+        int[] keys = index[0];
+        int mask = keys.length - 1;
+        for (int slot = hash(number) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == number + 1) {
+                // An ID at or past size belongs to a flight that is still being added
+                int id = index[1][slot] - 1;
+                return id < size ? id : -1;
+            }
+        }
+        return -1;
+    }
+
+    // Writer only. A reader racing the insert may miss the new key, but never reads a wrong
+    // ID: slots are never reused, and find checks the ID against the published size.
+    private void index(int number, int id) {
+        int[][] index = numberIndex;
+        if ((size + 1) * 2 > index[0].length) {
+            index = rebuildIndex(index[0].length * 2);
+        }
+        int[] keys = index[0];
+        int mask = keys.length - 1;
+        int slot = hash(number) & mask;
+        while (keys[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        index[1][slot] = id + 1;
+        keys[slot] = number + 1;
+        numberIndex = index;
+    }
+
+    private int[][] rebuildIndex(int capacity) {
+        int[][] index = {new int[capacity], new int[capacity]};
+        int mask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int number = chunks[id >>> CHUNK_BITS].flightNumbers[id & CHUNK_MASK];
+            int slot = hash(number) & mask;
+            while (index[0][slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            index[1][slot] = id + 1;
+            index[0][slot] = number + 1;
+        }
+        return index;
+    }
+
+    private static int hash(int number) {
+        int h = number * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    // "AB-123" and "AB-0123" are different flights: ((letters * 2 + three digits) * 10000) + number
+    private static int encodeFlightNumber(String flightNumber) {
+        if (flightNumber == null || !Flight.FLIGHT_NUMBER_PATTERN.matcher(flightNumber).matches()) {
+            throw new IllegalArgumentException("Invalid flight number format");
+        }
+        int letters = (flightNumber.charAt(0) - 'A') * 26 + (flightNumber.charAt(1) - 'A');
+        int threeDigits = flightNumber.length() == 6 ? 1 : 0;
+        return (letters * 2 + threeDigits) * 10_000 + Integer.parseInt(flightNumber, 3, flightNumber.length(), 10);
+    }
+
+    private static String decodeFlightNumber(int number) {
+        int letters = number / 20_000;
+        boolean threeDigits = number / 10_000 % 2 == 1;
+        int digits = number % 10_000;
+        StringBuilder text = new StringBuilder(7)
+                .append((char) ('A' + letters / 26)).append((char) ('A' + letters % 26)).append('-');
+        String value = Integer.toString(digits);
+        for (int pad = (threeDigits ? 3 : 4) - value.length(); pad > 0; pad--) {
+            text.append('0');
+        }
+        return text.append(value).toString();
+    }
+
+    private static long minuteOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), 60);
+    }
+
+    private static LocalDateTime timeOf(long minute) {
+        return LocalDateTime.ofEpochSecond(minute * 60, 0, ZoneOffset.UTC);
+    }
+}
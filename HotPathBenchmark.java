@@ -0,0 +1,309 @@
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+import java.util.function.IntFunction;
+
+// Microbenchmarks for the reservation hot paths. For each benchmark and dataset size it runs
+// timed warmup and measurement iterations and reports throughput, average latency and the
+// allocation rate of the measuring threads.
+//
+// Usage: java HotPathBenchmark [--sizes=10000,100000,1000000] [--threads=4] [--iterations=5]
+//                              [--csv] [name ...]
+// Sizes grow one shared registry, so list them in ascending order; flight numbers cap the
+// flight registry at about 6M. Give the JVM a fixed heap (e.g. -Xms4g -Xmx4g) for stable figures.
+public class HotPathBenchmark {
+    private static final long WARMUP_NANOS = 1_000_000_000L;
+    private static final long ITERATION_NANOS = 1_000_000_000L;
+    private static final int WARMUP_ITERATIONS = 2;
+    private static final int MAX_FLIGHTS = 26 * 26 * 9000;
+    private static final LocalDateTime DEPARTURE = LocalDateTime.now().plusDays(30).withNano(0);
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private static volatile long sink;
+
+    // One benchmark operation; its result feeds a sink so the JIT can't drop the work
+    private interface Operation {
+        long run(int invocation);
+    }
+
+    private record Benchmark(String name, boolean sized, boolean contended, IntFunction<Operation> setup) {}
+
+    private record Result(String name, int size, int threads, double opsPerSecond, double nanosPerOp,
+                          double bytesPerOp, double allocationMbPerSecond) {}
+
+    private static final FlightReservation reservation = new FlightReservation();
+    private static final RolesAndPermissions auth = new RolesAndPermissions();
+    private static final String PASSWORD = "password";
+    private static String passwordHash;
+    private static int flightCount;
+    private static int customerCount;
+
+    public static void main(String[] args) throws Exception {
+        int[] sizes = {10_000, 100_000, 1_000_000};
+        int threadCount = 4;
+        int iterations = 5;
+        boolean csv = false;
+        Set<String> selected = new HashSet<>();
+        for (String arg : args) {
+            if (arg.startsWith("--sizes=")) {
+                sizes = Arrays.stream(arg.substring(8).split(",")).mapToInt(Integer::parseInt).sorted().toArray();
+            } else if (arg.startsWith("--threads=")) {
+                threadCount = Integer.parseInt(arg.substring(10));
+            } else if (arg.startsWith("--iterations=")) {
+                iterations = Integer.parseInt(arg.substring(13));
+            } else if (arg.equals("--csv")) {
+                csv = true;
+            } else {
+                selected.add(arg);
+            }
+        }
+
+        passwordHash = PasswordHasher.hash(PASSWORD);
+        List<Result> results = new ArrayList<>();
+        for (int size : sizes) {
+            growFlights(size);
+            growCustomers(size);
+            for (Benchmark benchmark : benchmarks()) {
+                if (!selected.isEmpty() && !selected.contains(benchmark.name())) {
+                    continue;
+                }
+                if (!benchmark.sized() && size != sizes[0]) {
+                    continue;
+                }
+                int threadsUsed = benchmark.contended() ? threadCount : 1;
+                Result result = measure(benchmark, size, threadsUsed, iterations);
+                results.add(result);
+                if (!csv) {
+                    print(result);
+                }
+            }
+        }
+        if (csv) {
+            System.out.println("benchmark,size,threads,ops_per_s,ns_per_op,bytes_per_op,alloc_mb_per_s");
+            for (Result r : results) {
+                System.out.printf(Locale.ROOT, "%s,%d,%d,%.1f,%.1f,%.1f,%.1f%n", r.name(), r.size(), r.threads(),
+                        r.opsPerSecond(), r.nanosPerOp(), r.bytesPerOp(), r.allocationMbPerSecond());
+            }
+        }
+    }
+
+    private static List<Benchmark> benchmarks() {
+        return List.of(
+                // Book then cancel, so the flight's inventory stays level across iterations
+                new Benchmark("bookFlight", false, false, size -> bookAndCancel(freshFlight(), customers(1))),
+                new Benchmark("bookFlight.contended", false, true, size -> bookAndCancel(freshFlight(), customers(64))),
+                new Benchmark("findFlight", true, false, size -> {
+                    String[] numbers = sampleFlightNumbers(size);
+                    return i -> Flight.findFlight(numbers[i & (numbers.length - 1)]).isPresent() ? 1 : 0;
+                }),
+                new Benchmark("findCustomer", true, false, size -> {
+                    String[] ids = sampleUserIds(size);
+                    return i -> Customer.findCustomer(ids[i & (ids.length - 1)]).isPresent() ? 1 : 0;
+                }),
+                new Benchmark("addFlightBooking", false, false, size -> {
+                    Customer customer = customers(1)[0];
+                    Flight[] flights = Flight.snapshotFlights().subList(0, 16).toArray(new Flight[0]);
+                    return i -> {
+                        Flight flight = flights[i & 15];
+                        customer.addFlightBooking(flight, 1);
+                        return customer.removeFlightBooking(flight, 1);
+                    };
+                }),
+                new Benchmark("calculateDistance", false, false, size -> i -> {
+                    double offset = (i & 1023) * 0.01;
+                    return FlightDistance.calculateDistance(24.86 + offset, 67.0, 13.75, 100.5 - offset)[0].length();
+                }),
+                // Adds flights to the shared registry; per-op cost is one scheduled flight
+                new Benchmark("scheduleRandomFlights", false, false, size -> i -> {
+                    Flight.scheduleRandomFlights(1);
+                    return 1;
+                }),
+                // Hashing runs on the verifier pool, so the allocation figure is the caller's share only
+                new Benchmark("authenticateCustomer", true, false, size -> {
+                    String[] emails = sampleEmails(size);
+                    return i -> auth.authenticateCustomer(emails[i & (emails.length - 1)], PASSWORD).isPresent() ? 1 : 0;
+                }),
+                new Benchmark("manifest", false, false, size -> {
+                    Flight flight = freshFlight();
+                    for (Customer customer : customers(flight.getTotalSeats())) {
+                        flight.bookSeats(customer, 1);
+                    }
+                    ReportEngine report = new ReportEngine(Writer.nullWriter(), ReportEngine.Format.TEXT);
+                    List<Flight> flights = List.of(flight);
+                    return i -> {
+                        try {
+                            report.writeManifests(flights);
+                        } catch (IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                        return flight.getTotalSeats();
+                    };
+                })
+        );
+    }
+
+    private static Operation bookAndCancel(Flight flight, Customer[] customers) {
+        String flightNumber = flight.getFlightNumber();
+        String[] userIds = Arrays.stream(customers).map(Customer::getUserID).toArray(String[]::new);
+        return i -> {
+            String userId = userIds[i % userIds.length];
+            BookingStatus status = reservation.book(flightNumber, 1, userId);
+            if (status == BookingStatus.BOOKED) {
+                reservation.cancel(userId, flightNumber, 1);
+            }
+            return status.ordinal();
+        };
+    }
+
+    // Runs timed iterations on each thread together and aggregates over all of them
+    private static Result measure(Benchmark benchmark, int size, int threadCount, int iterations) throws Exception {
+        Operation operation = benchmark.setup().apply(size);
+        long[] ops = new long[threadCount];
+        long[] allocated = new long[threadCount];
+        long[] elapsed = new long[threadCount];
+        CyclicBarrier start = new CyclicBarrier(threadCount);
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int w = 0; w < WARMUP_ITERATIONS; w++) {
+                        runFor(operation, WARMUP_NANOS);
+                    }
+                    long id = Thread.currentThread().threadId();
+                    long bytesBefore = threads.getThreadAllocatedBytes(id);
+                    long begin = System.nanoTime();
+                    for (int m = 0; m < iterations; m++) {
+                        ops[worker] += runFor(operation, ITERATION_NANOS);
+                    }
+                    elapsed[worker] = System.nanoTime() - begin;
+                    allocated[worker] = threads.getThreadAllocatedBytes(id) - bytesBefore;
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            }, "benchmark-" + t);
+            workers[t].start();
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        long totalOps = Arrays.stream(ops).sum();
+        long totalBytes = Arrays.stream(allocated).sum();
+        double seconds = Arrays.stream(elapsed).max().orElse(1) / 1e9;
+        double nanosPerOp = Arrays.stream(elapsed).sum() / (double) Math.max(1, totalOps);
+        return new Result(benchmark.name(), benchmark.sized() ? size : 0, threadCount, totalOps / seconds,
+                nanosPerOp, totalBytes / (double) Math.max(1, totalOps), totalBytes / seconds / (1024 * 1024));
+    }
+
+    // Calls the operation in growing batches until the time is up; returns the calls made
+    private static long runFor(Operation operation, long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        long calls = 0;
+        long result = 0;
+        int batch = 1;
+        do {
+            for (int i = 0; i < batch; i++) {
+                result += operation.run((int) calls + i);
+            }
+            calls += batch;
+            batch = Math.min(batch * 2, 1 << 14);
+        } while (System.nanoTime() < deadline);
+        sink += result;
+        return calls;
+    }
+
+    private static void print(Result r) {
+        System.out.printf("%-22s %10s %3d thr %14.1f ops/s %12.1f ns/op %10.1f B/op %9.1f MB/s%n",
+                r.name(), r.size() == 0 ? "-" : String.valueOf(r.size()), r.threads(), r.opsPerSecond(),
+                r.nanosPerOp(), r.bytesPerOp(), r.allocationMbPerSecond());
+    }
+
+    // Dataset
+    private static void growFlights(int size) {
+        int target = Math.min(size, MAX_FLIGHTS);
+        List<Flight> batch = new ArrayList<>();
+        while (flightCount < target) {
+            batch.add(Flight.createUnregistered(benchmarkFlightNumber(flightCount), "Karachi", "Bangkok",
+                    "A" + (flightCount % 30 + 1), DEPARTURE.plusMinutes(flightCount % 100_000),
+                    Duration.ofMinutes(265), 500));
+            flightCount++;
+            if (batch.size() == 16_384 || flightCount == target) {
+                Flight.registerAll(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private static void growCustomers(int size) {
+        while (customerCount < size) {
+            Customer.addCustomer(new Customer(String.valueOf(1_000_000_000L + customerCount), "Customer " + customerCount,
+                    email(customerCount), passwordHash, "0300" + (1_000_000 + customerCount % 9_000_000),
+                    "Street " + customerCount, 18 + customerCount % 60));
+            customerCount++;
+        }
+    }
+
+    private static int freshFlights;
+
+    // A flight outside the sized registry, with a full 500 seats
+    private static Flight freshFlight() {
+        String number;
+        do {
+            number = String.format("ZZ-%03d", 100 + freshFlights++);
+        } while (Flight.findFlight(number).isPresent());
+        return new Flight(number, "Karachi", "Bangkok", "Z1", DEPARTURE, Duration.ofMinutes(265), 500);
+    }
+
+    private static Customer[] customers(int count) {
+        Customer[] customers = new Customer[count];
+        for (int i = 0; i < count; i++) {
+            customers[i] = Customer.findCustomer(String.valueOf(1_000_000_000L + i)).orElseThrow();
+        }
+        return customers;
+    }
+
+    // Samples are a power of two long so operations can index them with a mask
+    private static String[] sampleFlightNumbers(int size) {
+        Random random = new Random(size);
+        String[] numbers = new String[4096];
+        for (int i = 0; i < numbers.length; i++) {
+            numbers[i] = benchmarkFlightNumber(random.nextInt(Math.min(size, flightCount)));
+        }
+        return numbers;
+    }
+
+    private static String[] sampleUserIds(int size) {
+        Random random = new Random(size);
+        String[] ids = new String[4096];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = String.valueOf(1_000_000_000L + random.nextInt(size));
+        }
+        return ids;
+    }
+
+    private static String[] sampleEmails(int size) {
+        Random random = new Random(size);
+        String[] emails = new String[64];
+        for (int i = 0; i < emails.length; i++) {
+            emails[i] = email(random.nextInt(size));
+        }
+        return emails;
+    }
+
+    // "AA-1000" upwards: 9000 numbers per letter pair
+    private static String benchmarkFlightNumber(int i) {
+        int prefix = i / 9000;
+        return "" + (char) ('A' + prefix / 26) + (char) ('A' + prefix % 26) + "-" + (1000 + i % 9000);
+    }
+
+    private static String email(int i) {
+        return "bench" + i + "@example.com";
+    }
+}
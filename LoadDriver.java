@@ -0,0 +1,199 @@
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Runs a WorkloadGenerator operation stream against FlightReservation end to end and reports
+// sustained throughput and per-operation tail latency.
+//
+// Usage: java LoadDriver [--seed=1] [--airports=200] [--flights=20000] [--customers=100000]
+//                        [--operations=1000000] [--threads=8] [--mix=book:70,cancel:15,search:10,login:5]
+//                        [--skew=1.0] [--flash-sale=0.1] [--flash-sale-flights=5] [--journal=<path>]
+// Thread t runs operations t, t + threads, t + 2 * threads, ... Logins pay the full password
+// hash, so lower -Dairline.passwordIterations or their weight to stress the booking path.
+public class LoadDriver {
+    private static final int SEARCH_RESULTS = 20;
+    private static final long SAMPLE_NANOS = 1_000_000_000L;
+
+    private final WorkloadGenerator workload;
+    private final int threadCount;
+    private final FlightReservation reservation = new FlightReservation();
+    private final RolesAndPermissions auth = new RolesAndPermissions();
+    private final Map<WorkloadGenerator.OperationType, LatencyHistogram> latencies =
+            new EnumMap<>(WorkloadGenerator.OperationType.class);
+    private final AtomicLongArray outcomes = new AtomicLongArray(BookingStatus.values().length);
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failedLogins = new AtomicLong();
+
+    public LoadDriver(WorkloadGenerator workload, int threadCount) {
+        if (threadCount < 1) {
+            throw new IllegalArgumentException("Need at least one thread");
+        }
+        this.workload = workload;
+        this.threadCount = threadCount;
+        for (WorkloadGenerator.OperationType type : WorkloadGenerator.OperationType.values()) {
+            latencies.put(type, new LatencyHistogram());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int split = arg.indexOf('=');
+            if (!arg.startsWith("--") || split < 0) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg);
+            }
+            options.put(arg.substring(2, split), arg.substring(split + 1));
+        }
+
+        WorkloadGenerator.Spec spec = new WorkloadGenerator.Spec(
+                Long.parseLong(options.getOrDefault("seed", "1")),
+                Integer.parseInt(options.getOrDefault("airports", "200")),
+                Integer.parseInt(options.getOrDefault("flights", "20000")),
+                Integer.parseInt(options.getOrDefault("customers", "100000")),
+                Long.parseLong(options.getOrDefault("operations", "1000000")),
+                WorkloadGenerator.Mix.parse(options.getOrDefault("mix", "book:70,cancel:15,search:10,login:5")),
+                Double.parseDouble(options.getOrDefault("skew", "1.0")),
+                Double.parseDouble(options.getOrDefault("flash-sale", "0.1")),
+                Integer.parseInt(options.getOrDefault("flash-sale-flights", "5")));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "8"));
+
+        BookingJournal journal = options.containsKey("journal")
+                ? BookingJournal.open(Path.of(options.get("journal"))) : null;
+        try {
+            long start = System.nanoTime();
+            WorkloadGenerator workload = WorkloadGenerator.build(spec);
+            System.out.printf("Dataset: %d airports, %d flights, %d customers in %d ms%n", spec.airports(),
+                    spec.flights(), spec.customers(), (System.nanoTime() - start) / 1_000_000);
+            new LoadDriver(workload, threads).run().print();
+        } finally {
+            if (journal != null) {
+                journal.close();
+            }
+        }
+    }
+
+    public record Report(long operations, int threads, double seconds, long[] samples,
+                         Map<WorkloadGenerator.OperationType, LatencyHistogram> latencies,
+                         Map<BookingStatus, Long> outcomes, long failedLogins) {
+        public double throughput() {
+            return operations / seconds;
+        }
+
+        // Lowest and median one-second throughput, ignoring the final partial second
+        public long sustainedMinimum() {
+            return samples.length == 0 ? (long) throughput() : Arrays.stream(samples).min().getAsLong();
+        }
+
+        public long sustainedMedian() {
+            if (samples.length == 0) {
+                return (long) throughput();
+            }
+            long[] sorted = samples.clone();
+            Arrays.sort(sorted);
+            return sorted[sorted.length / 2];
+        }
+
+        public void print() {
+            System.out.printf("Ran %d operations on %d threads in %.2f s: %.0f ops/s "
+                            + "(sustained per second: min %d, median %d)%n",
+                    operations, threads, seconds, throughput(), sustainedMinimum(), sustainedMedian());
+            System.out.printf("%-8s %10s %10s %10s %10s %10s %10s%n",
+                    "op", "count", "mean_us", "p50_us", "p99_us", "p999_us", "max_us");
+            latencies.forEach((type, histogram) -> System.out.printf(Locale.ROOT,
+                    "%-8s %10d %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    type.name().toLowerCase(Locale.ROOT), histogram.getCount(), histogram.getMean() / 1000,
+                    histogram.getPercentile(0.50) / 1000.0, histogram.getPercentile(0.99) / 1000.0,
+                    histogram.getPercentile(0.999) / 1000.0, histogram.getMax() / 1000.0));
+            outcomes.forEach((status, count) -> {
+                if (count > 0) {
+                    System.out.printf("outcome %-16s %d%n", status, count);
+                }
+            });
+            System.out.printf("failed logins %d%n", failedLogins);
+        }
+    }
+
+    public Report run() throws InterruptedException {
+        long operations = workload.getSpec().operations();
+        Thread[] workers = new Thread[threadCount];
+        for (int t = 0; t < threadCount; t++) {
+            int worker = t;
+            workers[t] = new Thread(() -> {
+                for (long index = worker; index < operations; index += threadCount) {
+                    execute(workload.operation(index));
+                    completed.incrementAndGet();
+                }
+            }, "load-driver-" + t);
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) {
+            worker.start();
+        }
+        List<Long> samples = new ArrayList<>();
+        long lastCount = 0;
+        long nextSample = start + SAMPLE_NANOS;
+        while (isAlive(workers)) {
+            workers[0].join(Math.max(1, (nextSample - System.nanoTime()) / 1_000_000));
+            if (System.nanoTime() >= nextSample && isAlive(workers)) {
+                long count = completed.get();
+                samples.add(count - lastCount);
+                lastCount = count;
+                nextSample += SAMPLE_NANOS;
+            }
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Map<BookingStatus, Long> outcomeCounts = new EnumMap<>(BookingStatus.class);
+        for (BookingStatus status : BookingStatus.values()) {
+            outcomeCounts.put(status, outcomes.get(status.ordinal()));
+        }
+        return new Report(completed.get(), threadCount, seconds,
+                samples.stream().mapToLong(Long::longValue).toArray(), latencies, outcomeCounts, failedLogins.get());
+    }
+
+    private void execute(WorkloadGenerator.Operation operation) {
+        long start = System.nanoTime();
+        Customer customer = workload.getCustomer(operation.customer());
+        switch (operation.type()) {
+            case BOOK -> record(reservation.book(workload.getFlight(operation.flight()).getFlightNumber(),
+                    operation.tickets(), customer.getUserID()));
+            case CANCEL -> {
+                // Cancels one ticket of the customer's earliest remaining booking, if any
+                List<Flight> booked = customer.getFlights();
+                record(booked.isEmpty() ? BookingStatus.NOT_BOOKED
+                        : reservation.cancel(customer.getUserID(), booked.get(0).getFlightNumber(), 1));
+            }
+            case SEARCH -> {
+                DistanceMatrix airports = workload.getAirports();
+                Flight.getRouteIndex().nextDepartures(airports.airportName(operation.origin()),
+                        airports.airportName(operation.destination()), LocalDateTime.now(), SEARCH_RESULTS);
+            }
+            case LOGIN -> {
+                if (auth.authenticateCustomer(WorkloadGenerator.email(operation.customer()),
+                        WorkloadGenerator.PASSWORD).isEmpty()) {
+                    failedLogins.incrementAndGet();
+                }
+            }
+        }
+        latencies.get(operation.type()).record(System.nanoTime() - start);
+    }
+
+    private void record(BookingStatus status) {
+        outcomes.incrementAndGet(status.ordinal());
+    }
+
+    private static boolean isAlive(Thread[] workers) {
+        for (Thread worker : workers) {
+            if (worker.isAlive()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,78 @@
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+
+// Measures the login path against a large account table.
+// Usage: java LoginBenchmark [accounts] [logins]
+public class LoginBenchmark {
+    private static final int SCAN_SAMPLES = 20;
+    private static final int LOOKUPS = 1_000_000;
+
+    public static void main(String[] args) {
+        int accounts = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int logins = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        RolesAndPermissions auth = new RolesAndPermissions();
+        Random random = new Random(42);
+
+        // One shared hash: deriving a salted hash per account would dominate the run
+        String passwordHash = PasswordHasher.hash("password");
+        long start = System.nanoTime();
+        for (int i = 0; i < accounts; i++) {
+            Customer.addCustomer(new Customer(String.valueOf(i + 20000), "Customer " + i,
+                    email(i), passwordHash, "0300" + (1000000 + i), "Street " + i, 18 + i % 60));
+        }
+        System.out.printf("Registered %d accounts in %d ms%n", accounts, elapsedMillis(start));
+
+        // Credential lookup: the previous full scan against the email index
+        start = System.nanoTime();
+        for (int i = 0; i < SCAN_SAMPLES; i++) {
+            String email = email(random.nextInt(accounts)).toUpperCase(Locale.ROOT);
+            Customer.getAllCustomers().stream().filter(c -> c.getEmail().equalsIgnoreCase(email)).findFirst();
+        }
+        System.out.printf("Scan lookup:  %.3f ms each%n", elapsedMillis(start) / (double) SCAN_SAMPLES);
+
+        start = System.nanoTime();
+        int found = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (Customer.findByEmail(email(random.nextInt(accounts)).toUpperCase(Locale.ROOT)).isPresent()) {
+                found++;
+            }
+        }
+        System.out.printf("Index lookup: %.3f us each (%d found)%n",
+                elapsedMillis(start) * 1000.0 / LOOKUPS, found);
+
+        // Full logins, hash included, submitted together so the verifier pool stays busy
+        start = System.nanoTime();
+        List<CompletableFuture<Optional<String>>> pending = new ArrayList<>(logins);
+        for (int i = 0; i < logins; i++) {
+            pending.add(auth.authenticateCustomerAsync(email(random.nextInt(accounts)), "password"));
+        }
+        long succeeded = pending.stream().map(CompletableFuture::join).filter(Optional::isPresent).count();
+        long loginMillis = elapsedMillis(start);
+        System.out.printf("Logins: %d of %d in %d ms (%.1f/s on %d cores)%n", succeeded, logins, loginMillis,
+                logins * 1000.0 / Math.max(1, loginMillis), Runtime.getRuntime().availableProcessors());
+
+        // Session hits skip hashing entirely
+        String[] tokens = new String[1000];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = RolesAndPermissions.getSessions().open(String.valueOf(20000 + random.nextInt(accounts)),
+                    RolesAndPermissions.Role.CUSTOMER);
+        }
+        start = System.nanoTime();
+        int resolved = 0;
+        for (int i = 0; i < LOOKUPS; i++) {
+            if (auth.resolveSession(tokens[random.nextInt(tokens.length)]).isPresent()) {
+                resolved++;
+            }
+        }
+        System.out.printf("Session resolve: %.3f us each (%d resolved)%n",
+                elapsedMillis(start) * 1000.0 / LOOKUPS, resolved);
+    }
+
+    private static String email(int i) {
+        return "customer" + i + "@example.com";
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
@@ -0,0 +1,210 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.*;
+
+// Always-on operation metrics: per-operation counts and latency histograms, booking outcome
+// counts and on-demand flight load gauges. Recording is a nanoTime pair, one histogram bucket
+// increment and a few LongAdder bumps, with no locks or allocation.
+// Published under the "AirlineReservation" JMX domain once registerMBeans() is called.
+public final class Metrics {
+    private static final String DOMAIN = "AirlineReservation";
+    private static final int BUSIEST_FLIGHTS = 10;
+
+    public enum Operation {
+        BOOK, BATCH_BOOK, CANCEL, AUTHENTICATE, REGISTER, REPORT;
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder failures = new LongAdder();
+
+        public String metricName() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Map<BookingStatus, LongAdder> outcomes = new EnumMap<>(BookingStatus.class);
+    static {
+        for (BookingStatus status : BookingStatus.values()) {
+            outcomes.put(status, new LongAdder());
+        }
+    }
+
+    private Metrics() {}
+
+    // Recording
+    public static void record(Operation operation, long startNanos, boolean success) {
+        operation.latency.record(System.nanoTime() - startNanos);
+        if (!success) {
+            operation.failures.increment();
+        }
+    }
+
+    public static void recordBooking(Operation operation, long startNanos, BookingStatus status) {
+        outcomes.get(status).increment();
+        record(operation, startNanos, status.isSuccess());
+    }
+
+    public static void recordOutcome(BookingStatus status) {
+        outcomes.get(status).increment();
+    }
+
+    public static long getOutcomeCount(BookingStatus status) {
+        return outcomes.get(status).sum();
+    }
+
+    public static LatencyHistogram getLatency(Operation operation) {
+        return operation.latency;
+    }
+
+    public static void reset() {
+        for (Operation operation : Operation.values()) {
+            operation.latency.reset();
+            operation.failures.reset();
+        }
+        outcomes.values().forEach(LongAdder::reset);
+    }
+
+    // JMX
+    public interface OperationMXBean {
+        long getCount();
+        long getFailures();
+        double getMeanMicros();
+        double getP50Micros();
+        double getP90Micros();
+        double getP99Micros();
+        double getP999Micros();
+        double getMaxMicros();
+        void reset();
+    }
+
+    public interface BookingOutcomesMXBean {
+        Map<String, Long> getCounts();
+    }
+
+    public interface FlightLoadMXBean {
+        int getFlightCount();
+        double getAverageLoadFactor();
+        int getSoldOutFlights();
+        int getFlightsAbove90Percent();
+        List<String> getBusiestFlights();
+        double getLoadFactor(String flightNumber);
+    }
+
+    public static void registerMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (Operation operation : Operation.values()) {
+                register(server, "type=Operation,name=" + operation.metricName(), new OperationView(operation));
+            }
+            register(server, "type=BookingOutcomes", new OutcomesView());
+            register(server, "type=FlightLoad", new FlightLoadView());
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics MBeans", e);
+        }
+    }
+
+    private static void register(MBeanServer server, String properties, Object bean) throws JMException {
+        ObjectName name = new ObjectName(DOMAIN + ":" + properties);
+        if (!server.isRegistered(name)) {
+            server.registerMBean(bean, name);
+        }
+    }
+
+    private static Map<String, Long> outcomeCounts() {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        outcomes.forEach((status, count) -> counts.put(status.name(), count.sum()));
+        return counts;
+    }
+
+    private static final class OutcomesView implements BookingOutcomesMXBean {
+        public Map<String, Long> getCounts() {
+            return outcomeCounts();
+        }
+    }
+
+    private record OperationView(Operation operation) implements OperationMXBean {
+        public long getCount() { return operation.latency.getCount(); }
+        public long getFailures() { return operation.failures.sum(); }
+        public double getMeanMicros() { return operation.latency.getMean() / 1000.0; }
+        public double getP50Micros() { return operation.latency.getPercentile(0.50) / 1000.0; }
+        public double getP90Micros() { return operation.latency.getPercentile(0.90) / 1000.0; }
+        public double getP99Micros() { return operation.latency.getPercentile(0.99) / 1000.0; }
+        public double getP999Micros() { return operation.latency.getPercentile(0.999) / 1000.0; }
+        public double getMaxMicros() { return operation.latency.getMax() / 1000.0; }
+
+        public void reset() {
+            operation.latency.reset();
+            operation.failures.reset();
+        }
+    }
+
+    // Gauges are computed from live seat counts when read, so bookings pay nothing for them
+    private static final class FlightLoadView implements FlightLoadMXBean {
+        public int getFlightCount() {
+            return Flight.getAllFlights().size();
+        }
+
+        public double getAverageLoadFactor() {
+            return Flight.snapshotFlights().stream().mapToDouble(Metrics::loadFactor).average().orElse(0);
+        }
+
+        public int getSoldOutFlights() {
+            return (int) Flight.snapshotFlights().stream().filter(f -> f.getAvailableSeats() == 0).count();
+        }
+
+        public int getFlightsAbove90Percent() {
+            return (int) Flight.snapshotFlights().stream().filter(f -> loadFactor(f) > 0.9).count();
+        }
+
+        public List<String> getBusiestFlights() {
+            return Flight.snapshotFlights().stream()
+                    .sorted(Comparator.comparingDouble(Metrics::loadFactor).reversed())
+                    .limit(BUSIEST_FLIGHTS)
+                    .map(f -> String.format("%s %.1f%%", f.getFlightNumber(), loadFactor(f) * 100))
+                    .toList();
+        }
+
+        public double getLoadFactor(String flightNumber) {
+            return Flight.findFlight(flightNumber).map(Metrics::loadFactor).orElse(-1.0);
+        }
+    }
+
+    static double loadFactor(Flight flight) {
+        return 1.0 - flight.getAvailableSeats() / (double) flight.getTotalSeats();
+    }
+
+    // Dump
+    public static void dump(Path path) throws IOException {
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(path, StandardCharsets.UTF_8))) {
+            dump(out);
+        }
+    }
+
+    public static void dump(PrintWriter out) {
+        out.printf("# Metrics at %s%n", LocalDateTime.now());
+        out.printf("%-12s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "failed", "mean_us", "p50_us", "p90_us", "p99_us", "p999_us", "max_us");
+        for (Operation operation : Operation.values()) {
+            OperationView view = new OperationView(operation);
+            out.printf(Locale.ROOT, "%-12s %10d %8d %10.1f %10.1f %10.1f %10.1f %10.1f %10.1f%n",
+                    operation.metricName(), view.getCount(), view.getFailures(), view.getMeanMicros(),
+                    view.getP50Micros(), view.getP90Micros(), view.getP99Micros(), view.getP999Micros(),
+                    view.getMaxMicros());
+        }
+        out.println();
+        outcomeCounts().forEach((status, count) -> out.printf("outcome.%s %d%n", status, count));
+        out.println();
+        FlightLoadView load = new FlightLoadView();
+        out.printf(Locale.ROOT, "flights %d, average load %.3f, sold out %d, above 90%% %d%n",
+                load.getFlightCount(), load.getAverageLoadFactor(), load.getSoldOutFlights(),
+                load.getFlightsAbove90Percent());
+        load.getBusiestFlights().forEach(flight -> out.println("busiest " + flight));
+        out.flush();
+    }
+}
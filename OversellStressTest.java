@@ -0,0 +1,184 @@
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Concurrency stress test for seat inventory: many threads book, cancel, join and leave
+// waitlists on a few small flights at once, while a sampler watches for negative availability
+// or more tickets sold than seats. After each round every flight must balance:
+// sold + available + held for the waitlist == capacity, and the passenger ledger, the
+// customers' own bookings and the sold count all agree.
+// Exits with status 1 on the first round that fails, so it can gate a build.
+//
+// Usage: java OversellStressTest [--threads=16] [--operations=20000] [--rounds=5] [--flights=4]
+//                                [--customers=400] [--shards=0]
+// --shards runs bookings and cancellations through a ShardedBookingEngine with that many shards.
+public class OversellStressTest {
+    private static final LocalDateTime DEPARTURE = LocalDateTime.now().plusDays(30).withNano(0);
+    private static final String PASSWORD_HASH = PasswordHasher.hash("stress-password");
+
+    public static void main(String[] args) throws Exception {
+        int threadCount = 16;
+        int operations = 20_000;
+        int rounds = 5;
+        int flightCount = 4;
+        int customerCount = 400;
+        int shards = 0;
+        for (String arg : args) {
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (arg.startsWith("--threads=")) {
+                threadCount = Integer.parseInt(value);
+            } else if (arg.startsWith("--operations=")) {
+                operations = Integer.parseInt(value);
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(value);
+            } else if (arg.startsWith("--flights=")) {
+                flightCount = Integer.parseInt(value);
+            } else if (arg.startsWith("--customers=")) {
+                customerCount = Integer.parseInt(value);
+            } else if (arg.startsWith("--shards=")) {
+                shards = Integer.parseInt(value);
+            } else {
+                System.out.println("Unknown option: " + arg);
+                System.exit(2);
+            }
+        }
+
+        List<Customer> customers = new ArrayList<>(customerCount);
+        for (int i = 0; i < customerCount; i++) {
+            Customer customer = new Customer(String.valueOf(90_000_000 + i), "Stress Customer " + i,
+                    "stress" + i + "@example.com", PASSWORD_HASH, "0300" + String.format("%07d", i), "", 30);
+            Customer.addCustomer(customer);
+            customers.add(customer);
+        }
+
+        ShardedBookingEngine engine = shards > 0
+                ? new ShardedBookingEngine(shards, ShardedBookingEngine.DEFAULT_QUEUE_CAPACITY, Duration.ofSeconds(1))
+                : null;
+        FlightReservation reservation = new FlightReservation(engine);
+        boolean passed = true;
+        try {
+            for (int round = 1; round <= rounds && passed; round++) {
+                List<Flight> flights = new ArrayList<>(flightCount);
+                for (int i = 0; i < flightCount; i++) {
+                    // Small flights so they sell out and the waitlist keeps churning
+                    flights.add(new Flight(String.format("ST-%d", 1000 + (round - 1) * flightCount + i), "Karachi",
+                            "Bangkok", "A1", DEPARTURE.plusMinutes(round), Duration.ofHours(4), Flight.MIN_SEATS));
+                }
+                long start = System.nanoTime();
+                List<String> violations = run(reservation, flights, customers, threadCount, operations, round);
+                for (Flight flight : flights) {
+                    violations.addAll(check(flight, customers));
+                }
+                System.out.printf("Round %d: %,d operations in %d ms, %s%n", round, (long) threadCount * operations,
+                        (System.nanoTime() - start) / 1_000_000, violations.isEmpty() ? "balanced" : "FAILED");
+                violations.forEach(violation -> System.out.println("  " + violation));
+                passed = violations.isEmpty();
+                Flight.cancelFlights(flights);
+            }
+        } finally {
+            if (engine != null) {
+                engine.close();
+            }
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static List<String> run(FlightReservation reservation, List<Flight> flights, List<Customer> customers,
+                                    int threadCount, int operations, int round) throws InterruptedException {
+        List<String> violations = Collections.synchronizedList(new ArrayList<>());
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicLong samples = new AtomicLong();
+        Thread sampler = new Thread(() -> {
+            while (running.get()) {
+                for (Flight flight : flights) {
+                    int available = flight.getAvailableSeats();
+                    long sold = flight.getPassengerBookings().totalTickets();
+                    if (available < 0 || sold > flight.getTotalSeats()) {
+                        violations.add(String.format("%s: observed %d available, %d sold of %d",
+                                flight.getFlightNumber(), available, sold, flight.getTotalSeats()));
+                        running.set(false);
+                    }
+                }
+                samples.incrementAndGet();
+            }
+        }, "oversell-sampler");
+        sampler.setDaemon(true);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threadCount);
+        CountDownLatch go = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            long seed = (long) round * 1_000_003 + t;
+            workers.add(pool.submit(() -> {
+                go.await();
+                Random random = new Random(seed);
+                Waitlist.Tier[] tiers = Waitlist.Tier.values();
+                for (int i = 0; i < operations && running.get(); i++) {
+                    Flight flight = flights.get(random.nextInt(flights.size()));
+                    Customer customer = customers.get(random.nextInt(customers.size()));
+                    String userId = customer.getUserID();
+                    int tickets = 1 + random.nextInt(FlightReservation.MAX_TICKETS_PER_BOOKING);
+                    switch (random.nextInt(8)) {
+                        case 0, 1, 2 -> reservation.book(flight.getFlightNumber(), tickets, userId);
+                        case 3 -> reservation.bookOrWaitlist(flight.getFlightNumber(), tickets, userId,
+                                tiers[random.nextInt(tiers.length)]);
+                        case 4 -> flight.getWaitlist().leave(customer);
+                        default -> {
+                            int held = customer.getTicketsFor(flight);
+                            if (held > 0) {
+                                reservation.cancel(userId, flight.getFlightNumber(), 1 + random.nextInt(held));
+                            }
+                        }
+                    }
+                }
+                return null;
+            }));
+        }
+        sampler.start();
+        go.countDown();
+        for (Future<?> worker : workers) {
+            try {
+                worker.get();
+            } catch (ExecutionException e) {
+                violations.add("Worker failed: " + e.getCause());
+            }
+        }
+        pool.shutdown();
+        running.set(false);
+        sampler.join();
+        if (samples.get() == 0) {
+            violations.add("Sampler never ran");
+        }
+        return violations;
+    }
+
+    // Quiescent invariants for one flight
+    private static List<String> check(Flight flight, List<Customer> customers) {
+        List<String> violations = new ArrayList<>();
+        String number = flight.getFlightNumber();
+        int available = flight.getAvailableSeats();
+        int held = flight.getWaitlist().getHeldSeats();
+        long sold = flight.getPassengerBookings().totalTickets();
+        long booked = 0;
+        for (Customer customer : customers) {
+            booked += customer.getTicketsFor(flight);
+        }
+        if (available < 0) {
+            violations.add(String.format("%s: %d seats available", number, available));
+        }
+        if (sold > flight.getTotalSeats()) {
+            violations.add(String.format("%s: %d tickets sold for %d seats", number, sold, flight.getTotalSeats()));
+        }
+        if (sold + available + held != flight.getTotalSeats()) {
+            violations.add(String.format("%s: sold %d + available %d + held %d != %d seats",
+                    number, sold, available, held, flight.getTotalSeats()));
+        }
+        if (booked != sold) {
+            violations.add(String.format("%s: customers hold %d tickets, passenger list %d", number, booked, sold));
+        }
+        return violations;
+    }
+}
@@ -6,7 +6,31 @@ public class RandomGenerator {
             {"Bangkok", "13.921430", "100.595337"},
     };
 
-    private final Random random = new Random();
+    private static final DistanceMatrix DESTINATION_DISTANCES = DistanceMatrix.fromTable(DESTINATIONS);
+
+    private final Random random;
+
+    public RandomGenerator() {
+        this.random = new Random();
+    }
+
+    // Seeded, so a workload can be regenerated exactly
+    public RandomGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    public static DistanceMatrix destinationDistances() {
+        return DESTINATION_DISTANCES;
+    }
+
+    public int randomAirport() {
+        return random.nextInt(DESTINATIONS.length);
+    }
+
+    public int randomDestinationFrom(int origin) {
+        int destination = random.nextInt(DESTINATIONS.length - 1);
+        return destination >= origin ? destination + 1 : destination;
+    }
 
     public String[][] randomDestinations() {
         int origin = random.nextInt(DESTINATIONS.length);
@@ -0,0 +1,427 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.TextStyle;
+import java.util.*;
+
+// Streams manifests, itineraries and schedules to any Writer as aligned text or CSV.
+// Rows are formatted straight into one large char buffer (numbers, padding and dates
+// included), so a report allocates per flight at most, never per row.
+public class ReportEngine implements DisplayClass, Closeable {
+    public enum Format { TEXT, CSV }
+
+    private enum Report { MANIFEST, ITINERARY, SCHEDULE }
+
+    private static final int CONSOLE_BUFFER_SIZE = 64 << 10;
+    private static final int FILE_BUFFER_SIZE = 1 << 20;
+    private static final int STREAM_BUFFER_SIZE = 8 << 10;
+    private static final int SCHEDULE_ROW_SIZE = 256;
+    private static final String[] DAY_NAMES = new String[7];
+    private static final String[] MONTH_NAMES = new String[12];
+
+    static {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            DAY_NAMES[day.ordinal()] = day.getDisplayName(TextStyle.SHORT, locale);
+        }
+        for (Month month : Month.values()) {
+            MONTH_NAMES[month.ordinal()] = month.getDisplayName(TextStyle.SHORT, locale);
+        }
+    }
+
+    private final Writer out;
+    private final Format format;
+    private final boolean ownsWriter;
+    private final char[] buffer;
+    private int position;
+    private Report csvHeader;
+
+    public ReportEngine(Writer out, Format format) {
+        this(out, format, FILE_BUFFER_SIZE, false);
+    }
+
+    private ReportEngine(Writer out, Format format, int bufferSize, boolean ownsWriter) {
+        this.out = Objects.requireNonNull(out);
+        this.format = Objects.requireNonNull(format);
+        this.buffer = new char[bufferSize];
+        this.ownsWriter = ownsWriter;
+    }
+
+    // Text reports on standard output; closing only flushes
+    public static ReportEngine console() {
+        return new ReportEngine(new OutputStreamWriter(System.out, System.out.charset()),
+                Format.TEXT, CONSOLE_BUFFER_SIZE, false);
+    }
+
+    // UTF-8 reports on a response stream, with a buffer small enough to allocate per request;
+    // closing only flushes
+    public static ReportEngine stream(OutputStream out, Format format) {
+        return new ReportEngine(new OutputStreamWriter(out, StandardCharsets.UTF_8), format,
+                STREAM_BUFFER_SIZE, false);
+    }
+
+    public static ReportEngine open(Path path, Format format) throws IOException {
+        Writer writer = new OutputStreamWriter(new BufferedOutputStream(
+                Files.newOutputStream(path), FILE_BUFFER_SIZE), StandardCharsets.UTF_8);
+        return new ReportEngine(writer, format, FILE_BUFFER_SIZE, true);
+    }
+
+    // DisplayClass implementation
+    @Override
+    public void displayRegisteredUsersForAllFlight() {
+        console(() -> {
+            for (Flight flight : Flight.snapshotFlights()) {
+                if (flight.getPassengerCount() > 0) {
+                    manifest(flight);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void displayRegisteredUsersForASpecificFlight(String flightNum) {
+        console(() -> Flight.findFlight(flightNum).ifPresentOrElse(
+                this::manifest,
+                () -> line("Flight not found")
+        ));
+    }
+
+    @Override
+    public void displayHeaderForUsers(Flight flight, List<Customer> customers) {
+        console(() -> {
+            manifestHeader(flight);
+            for (Customer customer : customers) {
+                int tickets = flight.getTicketsFor(customer);
+                if (tickets > 0) {
+                    manifestRow(flight, customer, tickets);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void displayFlightsRegisteredByOneUser(String userID) {
+        console(() -> Customer.findCustomer(userID).ifPresentOrElse(
+                this::itinerary,
+                () -> line("User not found")
+        ));
+    }
+
+    // Export API
+    public void writeManifests(Collection<Flight> flights) throws IOException {
+        export(() -> {
+            for (Flight flight : flights) {
+                manifest(flight);
+            }
+        });
+    }
+
+    public void writeItineraries(Collection<Customer> customers) throws IOException {
+        export(() -> {
+            for (Customer customer : customers) {
+                itinerary(customer);
+            }
+        });
+    }
+
+    public void writeSchedule(Collection<Flight> flights) throws IOException {
+        export(() -> {
+            scheduleTitle();
+            for (Flight flight : flights) {
+                scheduleRow(flight, flight.getAvailableSeats());
+            }
+        });
+    }
+
+    // Text pages reuse the view's pre-rendered rows; CSV pages are formatted from the flights
+    public void writeSchedule(ScheduleView.Page page) throws IOException {
+        if (format == Format.CSV) {
+            writeSchedule(page.flights());
+            return;
+        }
+        export(() -> {
+            scheduleTitle();
+            for (String row : page.rows()) {
+                line(row);
+            }
+        });
+    }
+
+    public void writeSchedule(ScheduleView view) throws IOException {
+        export(() -> {
+            scheduleTitle();
+            if (format == Format.TEXT) {
+                view.forEachRow(this::line);
+            } else {
+                view.forEachFlight(flight -> scheduleRow(flight, flight.getAvailableSeats()));
+            }
+        });
+    }
+
+    // One text schedule row without the line break, as cached by ScheduleView
+    static String scheduleText(Flight flight, int availableSeats) {
+        StringWriter text = new StringWriter(SCHEDULE_ROW_SIZE);
+        try (ReportEngine row = new ReportEngine(text, Format.TEXT, SCHEDULE_ROW_SIZE, false)) {
+            row.scheduleRow(flight, availableSeats);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return text.getBuffer().substring(0, text.getBuffer().length() - 1);
+    }
+
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        if (ownsWriter) {
+            out.close();
+        }
+    }
+
+    // Console reports flush when done; an I/O error on the console is reported, not thrown
+    private void console(Runnable report) {
+        try {
+            export(report);
+            flush();
+        } catch (IOException e) {
+            System.err.println("Report output failed: " + e.getMessage());
+        }
+    }
+
+    // Row writers report I/O errors unchecked so they can run inside ledger callbacks
+    private void export(Runnable report) throws IOException {
+        long start = System.nanoTime();
+        boolean completed = false;
+        try {
+            report.run();
+            completed = true;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            Metrics.record(Metrics.Operation.REPORT, start, completed);
+        }
+    }
+
+    // Report bodies
+    private void manifest(Flight flight) {
+        manifestHeader(flight);
+        flight.getPassengerBookings().forEach((passenger, tickets) -> manifestRow(flight, passenger, tickets));
+    }
+
+    private void manifestHeader(Flight flight) {
+        if (format == Format.CSV) {
+            csvHeader(Report.MANIFEST, "flight_number,user_id,name,age,tickets");
+            return;
+        }
+        line("");
+        append("=== Passengers on Flight ").append(flight.getFlightNumber()).append(" ===").newLine();
+        pad("User ID", 15).separator().pad("Name", 20).separator().pad("Age", 5).separator()
+                .pad("Tickets", 10).newLine();
+    }
+
+    private void manifestRow(Flight flight, Customer passenger, int tickets) {
+        if (format == Format.CSV) {
+            csv(flight.getFlightNumber()).comma().csv(passenger.getUserID()).comma().csv(passenger.getName())
+                    .comma().number(passenger.getAge()).comma().number(tickets).newLine();
+            return;
+        }
+        pad(passenger.getUserID(), 15).separator().pad(passenger.getName(), 20).separator()
+                .padNumber(passenger.getAge(), 5).separator().padNumber(tickets, 10).newLine();
+    }
+
+    private void itinerary(Customer customer) {
+        if (format == Format.CSV) {
+            csvHeader(Report.ITINERARY, "user_id,flight_number,from,to,departure,tickets");
+        } else {
+            line("");
+            append("=== Bookings for ").append(customer.getName()).append(" ===").newLine();
+            pad("Flight", 10).separator().pad("From", 15).append(" -> ").pad("To", 15).separator()
+                    .pad("Departure", 15).separator().pad("Tickets", 5).newLine();
+        }
+        customer.getBookings().forEach((flight, tickets) -> {
+            if (format == Format.CSV) {
+                csv(customer.getUserID()).comma().csv(flight.getFlightNumber()).comma().csv(flight.getFromCity())
+                        .comma().csv(flight.getToCity()).comma().isoDateTime(flight.getDepartureTime())
+                        .comma().number(tickets).newLine();
+            } else {
+                pad(flight.getFlightNumber(), 10).separator().pad(flight.getFromCity(), 15).append(" -> ")
+                        .pad(flight.getToCity(), 15).separator();
+                reserve(32);
+                int start = position;
+                isoDate(flight.getDepartureTime()).spaces(15 - (position - start)).separator()
+                        .padNumber(tickets, 5).newLine();
+            }
+        });
+    }
+
+    private void scheduleTitle() {
+        if (format == Format.TEXT) {
+            line("");
+            line("=== Flight Schedule ===");
+        } else {
+            csvHeader(Report.SCHEDULE, "flight_number,from,to,departure,arrival,gate,available_seats");
+        }
+    }
+
+    private void scheduleRow(Flight flight, int availableSeats) {
+        LocalDateTime departure = flight.getDepartureTime();
+        LocalDateTime arrival = departure.plus(flight.getFlightDuration());
+        if (format == Format.CSV) {
+            csv(flight.getFlightNumber()).comma().csv(flight.getFromCity()).comma().csv(flight.getToCity())
+                    .comma().isoDateTime(departure).comma().isoDateTime(arrival).comma().csv(flight.getGate())
+                    .comma().number(availableSeats).newLine();
+            return;
+        }
+        pad(flight.getFlightNumber(), 8).separator().pad(flight.getFromCity(), 15).append(" -> ")
+                .pad(flight.getToCity(), 15).append(" | Dep: ").scheduleDateTime(departure)
+                .append(" | Arr: ").scheduleDateTime(arrival).append(" | Gate: ").pad(flight.getGate(), 4)
+                .append(" | Seats: ").padNumber(availableSeats, 3).newLine();
+    }
+
+    private void csvHeader(Report report, String header) {
+        if (csvHeader != report) {
+            csvHeader = report;
+            line(header);
+        }
+    }
+
+    // Buffer primitives
+    private ReportEngine line(String text) {
+        return append(text).newLine();
+    }
+
+    private ReportEngine append(String text) {
+        int length = text.length();
+        for (int offset = 0; offset < length; ) {
+            reserve(1);
+            int count = Math.min(length - offset, buffer.length - position);
+            text.getChars(offset, offset + count, buffer, position);
+            position += count;
+            offset += count;
+        }
+        return this;
+    }
+
+    private ReportEngine append(char c) {
+        reserve(1);
+        buffer[position++] = c;
+        return this;
+    }
+
+    private ReportEngine newLine() {
+        return append('\n');
+    }
+
+    private ReportEngine separator() {
+        return append(" | ");
+    }
+
+    private ReportEngine comma() {
+        return append(',');
+    }
+
+    private ReportEngine spaces(int count) {
+        for (int i = 0; i < count; i++) {
+            append(' ');
+        }
+        return this;
+    }
+
+    // Left-aligned in at least width columns, like %-<width>s
+    private ReportEngine pad(String text, int width) {
+        return append(text).spaces(width - text.length());
+    }
+
+    private ReportEngine padNumber(long value, int width) {
+        reserve(20 + width);
+        int start = position;
+        number(value);
+        return spaces(width - (position - start));
+    }
+
+    private ReportEngine number(long value) {
+        reserve(20);
+        if (value < 0) {
+            buffer[position++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            digits++;
+        }
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        position += digits;
+        return this;
+    }
+
+    private ReportEngine twoDigits(int value) {
+        reserve(2);
+        buffer[position++] = (char) ('0' + value / 10);
+        buffer[position++] = (char) ('0' + value % 10);
+        return this;
+    }
+
+    // yyyy-MM-dd
+    private ReportEngine isoDate(LocalDateTime time) {
+        return number(time.getYear()).append('-').twoDigits(time.getMonthValue())
+                .append('-').twoDigits(time.getDayOfMonth());
+    }
+
+    // yyyy-MM-ddTHH:mm
+    private ReportEngine isoDateTime(LocalDateTime time) {
+        return isoDate(time).append('T').twoDigits(time.getHour()).append(':').twoDigits(time.getMinute());
+    }
+
+    // EEE, dd MMM yyyy HH:mm
+    private ReportEngine scheduleDateTime(LocalDateTime time) {
+        return append(DAY_NAMES[time.getDayOfWeek().ordinal()]).append(", ").twoDigits(time.getDayOfMonth())
+                .append(' ').append(MONTH_NAMES[time.getMonthValue() - 1]).append(' ').number(time.getYear())
+                .append(' ').twoDigits(time.getHour()).append(':').twoDigits(time.getMinute());
+    }
+
+    // RFC 4180 field: quoted only when it holds a comma, quote or line break
+    private ReportEngine csv(String value) {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            return append(value);
+        }
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        return append('"');
+    }
+
+    private void reserve(int chars) {
+        if (buffer.length - position < chars) {
+            try {
+                drain();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    private void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
@@ -0,0 +1,383 @@
+import com.sun.net.httpserver.*;
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Headless HTTP front end over the shared flight and customer model. Every exchange runs on
+// its own virtual thread, so a booking blocked on the journal's group commit parks cheaply.
+//
+//   POST /login          email+password (customer) or username+password (admin) -> token
+//   POST /logout         ends the session
+//   GET  /flights        from, to, after, limit, format=text|csv; without a route, pages through the
+//                        whole schedule: pass the X-Next-Cursor response header back as cursor
+//   POST /bookings       flight, tickets [, waitlist=true] [, userId and tier for admins]
+//   GET  /bookings       the caller's bookings [, userId for admins]
+//   POST /cancellations  flight, tickets [, userId for admins]
+//   GET  /waitlist       flight -> the caller's place in line [, userId for admins]
+//   DELETE /waitlist     flight, leaves the line [, userId for admins]
+//   GET  /history        the caller's archived, already flown trips [, userId for admins]
+//   GET  /manifest       flight (admins only)
+//   GET  /metrics        latency, outcome and load metrics (admins only)
+//
+// Parameters come from the query string or a form-encoded body; sessions are sent as
+// "Authorization: Bearer <token>".
+public class ReservationServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 8080;
+    private static final int BACKLOG = 16384;
+    private static final int MAX_BODY_BYTES = 16 << 10;
+    private static final int DEFAULT_SEARCH_LIMIT = 50;
+    private static final int MAX_SEARCH_LIMIT = 1000;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final RolesAndPermissions auth = new RolesAndPermissions();
+    private final FlightReservation reservation = new FlightReservation();
+
+    private ReservationServer(InetSocketAddress address) throws IOException {
+        server = HttpServer.create(address, BACKLOG);
+        server.setExecutor(executor);
+        route("/login", Map.of("POST", this::login));
+        route("/logout", Map.of("POST", this::logout));
+        route("/flights", Map.of("GET", this::searchFlights));
+        route("/bookings", Map.of("GET", this::listBookings, "POST", this::book));
+        route("/cancellations", Map.of("POST", this::cancel));
+        route("/waitlist", Map.of("GET", this::waitlistPosition, "DELETE", this::leaveWaitlist));
+        route("/history", Map.of("GET", this::history));
+        route("/manifest", Map.of("GET", this::manifest));
+        route("/metrics", Map.of("GET", this::metrics));
+    }
+
+    public static ReservationServer start(InetSocketAddress address) throws IOException {
+        ReservationServer reservationServer = new ReservationServer(address);
+        reservationServer.server.start();
+        return reservationServer;
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.close();
+    }
+
+    // Endpoints
+    private void login(Request request) throws IOException {
+        String password = request.require("password");
+        Optional<String> token = request.has("username")
+                ? auth.loginAdmin(request.require("username"), password)
+                : auth.loginCustomer(request.require("email"), password);
+        if (token.isEmpty()) {
+            request.reply(401, "Invalid credentials");
+        } else {
+            request.reply(200, token.get());
+        }
+    }
+
+    private void logout(Request request) throws IOException {
+        request.reply(auth.logout(request.token()) ? 200 : 401, "");
+    }
+
+    private void searchFlights(Request request) throws IOException {
+        int limit = request.intParam("limit", DEFAULT_SEARCH_LIMIT);
+        if (limit <= 0 || limit > MAX_SEARCH_LIMIT) {
+            throw new IllegalArgumentException("limit must be between 1-" + MAX_SEARCH_LIMIT);
+        }
+        if (request.has("from") || request.has("to")) {
+            LocalDateTime after = request.has("after") ? parseTime(request.param("after")) : LocalDateTime.now();
+            List<Flight> flights = Flight.getRouteIndex().nextDepartures(request.require("from"),
+                    request.require("to"), after, limit);
+            try (ReportEngine report = request.report()) {
+                report.writeSchedule(flights);
+            }
+        } else {
+            // The whole schedule in departure order, a page at a time
+            ScheduleView.Page page = Flight.getScheduleView().page(request.param("cursor"), limit);
+            if (page.hasNext()) {
+                request.header("X-Next-Cursor", page.nextCursor());
+            }
+            try (ReportEngine report = request.report()) {
+                report.writeSchedule(page);
+            }
+        }
+    }
+
+    private void book(Request request) throws IOException {
+        String userId = request.actingCustomer();
+        if (userId == null) {
+            return;
+        }
+        String flight = request.require("flight");
+        int tickets = request.intParam("tickets", 1);
+        if (Boolean.parseBoolean(request.param("waitlist"))) {
+            // Only admins place customers in a higher tier
+            Waitlist.Tier tier = request.has("tier") && request.isAdmin()
+                    ? parseTier(request.param("tier")) : Waitlist.Tier.STANDARD;
+            request.reply(reservation.bookOrWaitlist(flight, tickets, userId, tier));
+        } else {
+            request.reply(reservation.book(flight, tickets, userId));
+        }
+    }
+
+    private void waitlistPosition(Request request) throws IOException {
+        String userId = request.actingCustomer();
+        if (userId != null) {
+            OptionalInt position = reservation.waitlistPosition(userId, request.require("flight"));
+            if (position.isPresent()) {
+                request.reply(200, String.valueOf(position.getAsInt()));
+            } else {
+                request.reply(404, "Not waitlisted");
+            }
+        }
+    }
+
+    private void leaveWaitlist(Request request) throws IOException {
+        String userId = request.actingCustomer();
+        if (userId != null) {
+            boolean left = reservation.leaveWaitlist(userId, request.require("flight"));
+            request.reply(left ? 200 : 404, left ? "" : "Not waitlisted");
+        }
+    }
+
+    private void cancel(Request request) throws IOException {
+        String userId = request.actingCustomer();
+        if (userId != null) {
+            BookingStatus status = reservation.cancel(userId, request.require("flight"),
+                    request.intParam("tickets", 1));
+            request.reply(status);
+        }
+    }
+
+    private void listBookings(Request request) throws IOException {
+        String userId = request.actingCustomer();
+        if (userId == null) {
+            return;
+        }
+        Optional<Customer> customer = Customer.findCustomer(userId);
+        if (customer.isEmpty()) {
+            request.reply(404, "User not found");
+            return;
+        }
+        try (ReportEngine report = request.report()) {
+            report.writeItineraries(List.of(customer.get()));
+        }
+    }
+
+    private void history(Request request) throws IOException {
+        String userId = request.actingCustomer();
+        if (userId == null) {
+            return;
+        }
+        StringBuilder text = new StringBuilder();
+        for (FlightArchive.ArchivedFlight flight : Flight.getArchiver().getArchive().historyOf(userId)) {
+            text.append(flight).append(" | Tickets: ").append(flight.getTicketsFor(userId)).append('\n');
+        }
+        request.reply(200, text.toString());
+    }
+
+    private void manifest(Request request) throws IOException {
+        if (request.session(RolesAndPermissions.Role.ADMIN).isEmpty()) {
+            return;
+        }
+        Optional<Flight> flight = Flight.findFlight(request.require("flight"));
+        if (flight.isEmpty()) {
+            request.reply(404, "Flight not found");
+            return;
+        }
+        try (ReportEngine report = request.report()) {
+            report.writeManifests(List.of(flight.get()));
+        }
+    }
+
+    private void metrics(Request request) throws IOException {
+        if (request.session(RolesAndPermissions.Role.ADMIN).isEmpty()) {
+            return;
+        }
+        StringWriter text = new StringWriter();
+        Metrics.dump(new PrintWriter(text));
+        request.reply(200, text.toString());
+    }
+
+    // Dispatch and error mapping
+    private interface Endpoint {
+        void serve(Request request) throws IOException;
+    }
+
+    private void route(String path, Map<String, Endpoint> endpoints) {
+        server.createContext(path, exchange -> handle(exchange, endpoints.get(exchange.getRequestMethod())));
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) {
+        try (exchange) {
+            Request request = new Request(exchange);
+            if (endpoint == null) {
+                request.reply(405, "Method not allowed");
+                return;
+            }
+            try {
+                request.parseParams();
+                endpoint.serve(request);
+            } catch (IllegalArgumentException e) {
+                request.reply(400, e.getMessage());
+            } catch (RuntimeException e) {
+                request.reply(500, "Internal error");
+            }
+        } catch (IOException e) {
+            // Client went away; the exchange is closed above
+        }
+    }
+
+    private static Waitlist.Tier parseTier(String value) {
+        try {
+            return Waitlist.Tier.valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("tier must be one of " + Arrays.toString(Waitlist.Tier.values()));
+        }
+    }
+
+    private static LocalDateTime parseTime(String value) {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("after must be an ISO date-time");
+        }
+    }
+
+    private final class Request {
+        private final HttpExchange exchange;
+        private final Map<String, String> params = new HashMap<>();
+        private boolean replied;
+        private SessionCache.Session caller;
+
+        Request(HttpExchange exchange) {
+            this.exchange = exchange;
+        }
+
+        void parseParams() throws IOException {
+            parseParams(exchange.getRequestURI().getRawQuery());
+            byte[] body = exchange.getRequestBody().readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new IllegalArgumentException("Request body too large");
+            }
+            if (body.length > 0) {
+                parseParams(new String(body, StandardCharsets.UTF_8));
+            }
+        }
+
+        boolean has(String name) {
+            return params.containsKey(name);
+        }
+
+        String param(String name) {
+            return params.get(name);
+        }
+
+        String require(String name) {
+            String value = params.get(name);
+            if (value == null || value.isBlank()) {
+                throw new IllegalArgumentException("Missing parameter: " + name);
+            }
+            return value;
+        }
+
+        int intParam(String name, int defaultValue) {
+            String value = params.get(name);
+            if (value == null) {
+                return defaultValue;
+            }
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(name + " must be a number");
+            }
+        }
+
+        String token() {
+            String header = exchange.getRequestHeaders().getFirst("Authorization");
+            return header != null && header.startsWith("Bearer ") ? header.substring(7).trim() : null;
+        }
+
+        // Replies 401/403 itself when the caller may not act
+        Optional<SessionCache.Session> session(RolesAndPermissions.Role role) throws IOException {
+            Optional<SessionCache.Session> session = auth.resolveSession(token());
+            if (session.isEmpty()) {
+                reply(401, "Login required");
+                return Optional.empty();
+            }
+            if (role != null && session.get().role() != role) {
+                reply(403, "Not allowed");
+                return Optional.empty();
+            }
+            caller = session.get();
+            return session;
+        }
+
+        void header(String name, String value) {
+            exchange.getResponseHeaders().set(name, value);
+        }
+
+        boolean isAdmin() {
+            return caller != null && caller.role() == RolesAndPermissions.Role.ADMIN;
+        }
+
+        // Customers act for themselves; admins name the customer. Null when a reply was sent.
+        String actingCustomer() throws IOException {
+            Optional<SessionCache.Session> session = session(null);
+            if (session.isEmpty()) {
+                return null;
+            }
+            return session.get().role() == RolesAndPermissions.Role.ADMIN
+                    ? require("userId")
+                    : session.get().principal();
+        }
+
+        ReportEngine report() throws IOException {
+            ReportEngine.Format format = "csv".equalsIgnoreCase(param("format"))
+                    ? ReportEngine.Format.CSV : ReportEngine.Format.TEXT;
+            exchange.getResponseHeaders().set("Content-Type",
+                    (format == ReportEngine.Format.CSV ? "text/csv" : "text/plain") + "; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0);
+            replied = true;
+            return ReportEngine.stream(exchange.getResponseBody(), format);
+        }
+
+        void reply(BookingStatus status) throws IOException {
+            int code = status == BookingStatus.WAITLISTED ? 202
+                    : status == BookingStatus.BUSY ? 503
+                    : status.isSuccess() ? 200 : status.isInvalid() ? 400 : 409;
+            reply(code, status.name());
+        }
+
+        void reply(int code, String message) throws IOException {
+            if (replied) {
+                return;
+            }
+            replied = true;
+            byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(code, body.length);
+            exchange.getResponseBody().write(body);
+        }
+
+        private void parseParams(String encoded) {
+            if (encoded == null || encoded.isEmpty()) {
+                return;
+            }
+            for (String pair : encoded.split("&")) {
+                int split = pair.indexOf('=');
+                String name = split < 0 ? pair : pair.substring(0, split);
+                String value = split < 0 ? "" : pair.substring(split + 1);
+                params.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                        URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
@@ -1,35 +1,105 @@
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class RolesAndPermissions {
-    private static final String[][] ADMIN_CREDENTIALS = new String[10][2];
+    public enum Role { ADMIN, CUSTOMER }
+
+    private static final Duration SESSION_TTL = Duration.ofMinutes(30);
+    private static final int VERIFIER_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final int VERIFIER_QUEUE = VERIFIER_THREADS * 64;
+
+    // Admin usernames to password hashes
+    private static final Map<String, String> adminCredentials = new ConcurrentHashMap<>();
     static {
-        ADMIN_CREDENTIALS[0] = new String[]{"root", "root"};
+        adminCredentials.put("root", PasswordHasher.hash("root"));
     }
 
+    // Burned on unknown accounts so a miss costs as much as a wrong password
+    private static final String DUMMY_HASH = PasswordHasher.hash(UUID.randomUUID().toString());
+
+    // Password hashing is deliberately slow, so checks run on a bounded pool. When it's
+    // saturated the caller does the check itself, which throttles login floods at the source.
+    private static final ExecutorService verifier = new ThreadPoolExecutor(
+            VERIFIER_THREADS, VERIFIER_THREADS, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(VERIFIER_QUEUE), verifierThreads(),
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+    private static final SessionCache sessions = new SessionCache(SESSION_TTL);
+
     public Optional<String> authenticateAdmin(String username, String password) {
-        for (String[] creds : ADMIN_CREDENTIALS) {
-            if (creds != null && creds[0].equals(username) {
-                return creds[1].equals(password) ? Optional.of(username) : Optional.empty();
-            }
-        }
-        return Optional.empty();
+        return authenticateAdminAsync(username, password).join();
     }
 
     public Optional<String> authenticateCustomer(String email, String password) {
-        return Customer.getAllCustomers().stream()
-                .filter(c -> c.getEmail().equalsIgnoreCase(email)
-                        && c.getPassword().equals(password))
-                .findFirst()
-                .map(Customer::getUserID);
+        return authenticateCustomerAsync(email, password).join();
+    }
+
+    public CompletableFuture<Optional<String>> authenticateAdminAsync(String username, String password) {
+        long start = System.nanoTime();
+        String stored = username == null ? null : adminCredentials.get(username);
+        return timed(start, verify(password, stored, username));
+    }
+
+    // Completes with the customer's user ID
+    public CompletableFuture<Optional<String>> authenticateCustomerAsync(String email, String password) {
+        long start = System.nanoTime();
+        Optional<Customer> customer = Customer.findByEmail(email);
+        if (customer.isEmpty()) {
+            return timed(start, verify(password, null, null));
+        }
+        return timed(start, CompletableFuture.supplyAsync(
+                () -> customer.filter(c -> c.checkPassword(password)).map(Customer::getUserID), verifier));
+    }
+
+    // Session logins: the token stands in for the password until it expires or is closed
+    public Optional<String> loginAdmin(String username, String password) {
+        return authenticateAdmin(username, password).map(name -> sessions.open(name, Role.ADMIN));
+    }
+
+    public Optional<String> loginCustomer(String email, String password) {
+        return authenticateCustomer(email, password).map(userId -> sessions.open(userId, Role.CUSTOMER));
+    }
+
+    // Customer sessions end with the account; admin sessions only by expiry or logout
+    public Optional<SessionCache.Session> resolveSession(String token) {
+        return sessions.find(token).filter(session -> session.role() == Role.ADMIN
+                ? adminCredentials.containsKey(session.principal())
+                : Customer.findCustomer(session.principal()).isPresent());
+    }
+
+    public boolean logout(String token) {
+        return sessions.close(token);
     }
 
     public boolean registerAdmin(String username, String password) {
-        for (int i = 1; i < ADMIN_CREDENTIALS.length; i++) {
-            if (ADMIN_CREDENTIALS[i] == null) {
-                ADMIN_CREDENTIALS[i] = new String[]{username, password};
-                return true;
-            }
+        if (username == null || username.isBlank() || password == null || password.isEmpty()) {
+            return false;
         }
-        return false;
+        return adminCredentials.putIfAbsent(username, PasswordHasher.hash(password)) == null;
+    }
+
+    public static SessionCache getSessions() { return sessions; }
+
+    private static CompletableFuture<Optional<String>> verify(String password, String stored, String principal) {
+        return CompletableFuture.supplyAsync(() -> {
+            boolean matches = PasswordHasher.verify(password, stored == null ? DUMMY_HASH : stored);
+            return matches && stored != null ? Optional.of(principal) : Optional.<String>empty();
+        }, verifier);
+    }
+
+    private static CompletableFuture<Optional<String>> timed(long start, CompletableFuture<Optional<String>> check) {
+        return check.whenComplete((principal, error) ->
+                Metrics.record(Metrics.Operation.AUTHENTICATE, start, principal != null && principal.isPresent()));
+    }
+
+    private static ThreadFactory verifierThreads() {
+        AtomicInteger count = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-verifier-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+public class RouteIndex {
+    // Flight numbers are "AA-123"; these bracket every valid number at a given departure time
+    private static final String LOWEST_FLIGHT_NUMBER = "";
+    private static final String HIGHEST_FLIGHT_NUMBER = "\uFFFF";
+
+    private final Map<String, ConcurrentSkipListMap<DepartureKey, Flight>> routes = new ConcurrentHashMap<>();
+    // Route keys by either endpoint city; like routes, kept once created
+    private final Map<String, Set<String>> routesByCity = new ConcurrentHashMap<>();
+
+    public void add(Flight flight) {
+        String route = routeKey(flight.getFromCity(), flight.getToCity());
+        routes.computeIfAbsent(route, key -> {
+            routesByCity.computeIfAbsent(cityKey(flight.getFromCity()), city -> ConcurrentHashMap.newKeySet()).add(key);
+            routesByCity.computeIfAbsent(cityKey(flight.getToCity()), city -> ConcurrentHashMap.newKeySet()).add(key);
+            return new ConcurrentSkipListMap<>();
+        }).put(DepartureKey.of(flight), flight);
+    }
+
+    public void remove(Flight flight) {
+        ConcurrentSkipListMap<DepartureKey, Flight> departures =
+                routes.get(routeKey(flight.getFromCity(), flight.getToCity()));
+        if (departures != null) {
+            departures.remove(DepartureKey.of(flight), flight);
+        }
+    }
+
+    // Lazily streams the route's flights departing within [start, end], earliest first
+    public Stream<Flight> departuresBetween(String fromCity, String toCity,
+                                            LocalDateTime start, LocalDateTime end) {
+        if (start.isAfter(end)) {
+            return Stream.empty();
+        }
+        return departures(fromCity, toCity)
+                .subMap(new DepartureKey(start, LOWEST_FLIGHT_NUMBER), true,
+                        new DepartureKey(end, HIGHEST_FLIGHT_NUMBER), true)
+                .values().stream();
+    }
+
+    // Lazily streams the route's flights departing at or after the given time, earliest first
+    public Stream<Flight> departuresFrom(String fromCity, String toCity, LocalDateTime after) {
+        return departures(fromCity, toCity)
+                .tailMap(new DepartureKey(after, LOWEST_FLIGHT_NUMBER), true)
+                .values().stream();
+    }
+
+    public List<Flight> nextDepartures(String fromCity, String toCity, LocalDateTime after, int count) {
+        return departuresFrom(fromCity, toCity, after).limit(count).toList();
+    }
+
+    // Every flight departing from or arriving at the city; visits only the routes touching it
+    public List<Flight> flightsServing(String city) {
+        List<Flight> flights = new ArrayList<>();
+        for (String route : routesByCity.getOrDefault(cityKey(city), Set.of())) {
+            ConcurrentSkipListMap<DepartureKey, Flight> departures = routes.get(route);
+            if (departures != null) {
+                flights.addAll(departures.values());
+            }
+        }
+        return flights;
+    }
+
+    public int countDepartures(String fromCity, String toCity) {
+        return departures(fromCity, toCity).size();
+    }
+
+    private ConcurrentNavigableMap<DepartureKey, Flight> departures(String fromCity, String toCity) {
+        ConcurrentSkipListMap<DepartureKey, Flight> departures = routes.get(routeKey(fromCity, toCity));
+        return departures != null ? departures : new ConcurrentSkipListMap<>();
+    }
+
+    private static String routeKey(String fromCity, String toCity) {
+        return cityKey(fromCity) + '\u0000' + cityKey(toCity);
+    }
+
+    private static String cityKey(String city) {
+        return city.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,17 @@
+import java.time.Duration;
+import java.util.List;
+
+public record ScheduleImportReport(long rowsRead, long imported, long rejected,
+                                   List<String> errors, Duration elapsed) {
+
+    public double rowsPerSecond() {
+        long nanos = elapsed.toNanos();
+        return nanos == 0 ? 0 : rowsRead * 1_000_000_000.0 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Read %d rows: %d imported, %d rejected in %d ms (%.0f rows/sec)",
+                rowsRead, imported, rejected, elapsed.toMillis(), rowsPerSecond());
+    }
+}
@@ -0,0 +1,176 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.*;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.IntStream;
+
+// Streams "flightNumber,fromCity,toCity,gate,departure,distanceNm,seats" rows into the flight list,
+// or into a FlightStore for schedules too large to hold as Flight objects.
+// Departure is an ISO local date-time; blank lines, '#' comments and a header row are skipped.
+public class ScheduleImporter {
+    private static final int BATCH_SIZE = 16_384;
+    private static final int READ_BUFFER_SIZE = 1 << 20;
+    private static final int MAX_REPORTED_ERRORS = 1_000;
+    private static final int COLUMN_COUNT = 7;
+
+    private record Row(long lineNumber, String line) {}
+
+    private record ParsedRow(Flight flight, String error) {}
+
+    public ScheduleImportReport importFile(Path path) throws IOException {
+        return importFile(path, null);
+    }
+
+    public ScheduleImportReport importFile(Path path, FlightStore store) throws IOException {
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8), READ_BUFFER_SIZE)) {
+            return importFrom(reader, store);
+        }
+    }
+
+    public ScheduleImportReport importFrom(BufferedReader reader) throws IOException {
+        return importFrom(reader, null);
+    }
+
+    // Reads the next batch while the previous one is validated in parallel, then registers it in
+    // bulk, or copies it into the store when one is given. The store keeps only the schedule, so
+    // each batch's Flight objects are garbage once it is added.
+    public ScheduleImportReport importFrom(BufferedReader reader, FlightStore store) throws IOException {
+        long start = System.nanoTime();
+        long rowsRead = 0;
+        long imported = 0;
+        long rejected = 0;
+        List<String> errors = new ArrayList<>();
+        long[] lineNumber = {0};
+
+        List<Row> batch = readBatch(reader, lineNumber);
+        CompletableFuture<ParsedRow[]> parsing = parseAsync(batch);
+        while (!batch.isEmpty()) {
+            List<Row> nextBatch = readBatch(reader, lineNumber);
+            CompletableFuture<ParsedRow[]> nextParsing = parseAsync(nextBatch);
+
+            ParsedRow[] parsed = parsing.join();
+            List<Flight> flights = new ArrayList<>(parsed.length);
+            Map<Flight, Long> lineOf = new IdentityHashMap<>(parsed.length * 2);
+            for (int i = 0; i < parsed.length; i++) {
+                if (parsed[i].flight() != null) {
+                    flights.add(parsed[i].flight());
+                    lineOf.put(parsed[i].flight(), batch.get(i).lineNumber());
+                } else {
+                    rejected++;
+                    recordError(errors, batch.get(i).lineNumber(), parsed[i].error());
+                }
+            }
+            Map<Flight, String> refused = store == null ? registerAll(flights) : addAll(store, flights);
+            refused.forEach((flight, error) -> recordError(errors, lineOf.get(flight), error));
+
+            rowsRead += batch.size();
+            imported += flights.size() - refused.size();
+            rejected += refused.size();
+            batch = nextBatch;
+            parsing = nextParsing;
+        }
+
+        return new ScheduleImportReport(rowsRead, imported, rejected,
+                Collections.unmodifiableList(errors), Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    // The flights the registry or the store turned away, with the reason
+    private static Map<Flight, String> registerAll(List<Flight> flights) {
+        Map<Flight, String> refused = new LinkedHashMap<>();
+        for (Flight duplicate : Flight.registerAll(flights)) {
+            refused.put(duplicate, "Flight number already exists: " + duplicate.getFlightNumber());
+        }
+        return refused;
+    }
+
+    private static Map<Flight, String> addAll(FlightStore store, List<Flight> flights) {
+        Map<Flight, String> refused = new LinkedHashMap<>();
+        for (Flight flight : flights) {
+            try {
+                store.add(flight);
+            } catch (IllegalArgumentException e) {
+                refused.put(flight, e.getMessage() + ": " + flight.getFlightNumber());
+            }
+        }
+        return refused;
+    }
+
+    private List<Row> readBatch(BufferedReader reader, long[] lineNumber) throws IOException {
+        List<Row> batch = new ArrayList<>(BATCH_SIZE);
+        String line;
+        while (batch.size() < BATCH_SIZE && (line = reader.readLine()) != null) {
+            lineNumber[0]++;
+            if (line.isBlank() || line.startsWith("#") || isHeader(line, lineNumber[0])) {
+                continue;
+            }
+            batch.add(new Row(lineNumber[0], line));
+        }
+        return batch;
+    }
+
+    private boolean isHeader(String line, long lineNumber) {
+        return lineNumber == 1 && line.regionMatches(true, 0, "flightNumber", 0, "flightNumber".length());
+    }
+
+    private CompletableFuture<ParsedRow[]> parseAsync(List<Row> batch) {
+        return CompletableFuture.supplyAsync(() -> {
+            ParsedRow[] parsed = new ParsedRow[batch.size()];
+            IntStream.range(0, batch.size()).parallel()
+                    .forEach(i -> parsed[i] = parseRow(batch.get(i).line()));
+            return parsed;
+        });
+    }
+
+    private ParsedRow parseRow(String line) {
+        String[] columns = line.split(",", -1);
+        if (columns.length != COLUMN_COUNT) {
+            return new ParsedRow(null, String.format("Expected %d columns but found %d", COLUMN_COUNT, columns.length));
+        }
+        try {
+            double distance = Double.parseDouble(columns[5].trim());
+            if (!(distance > 0) || Double.isInfinite(distance)) {
+                return new ParsedRow(null, "Invalid distance: " + columns[5].trim());
+            }
+            Flight flight = Flight.createUnregistered(
+                    columns[0].trim(),
+                    columns[1],
+                    columns[2],
+                    columns[3].trim(),
+                    LocalDateTime.parse(columns[4].trim()),
+                    Flight.calculateFlightDuration(distance),
+                    Integer.parseInt(columns[6].trim()));
+            return new ParsedRow(flight, null);
+        } catch (DateTimeParseException e) {
+            return new ParsedRow(null, "Invalid departure time: " + columns[4].trim());
+        } catch (NumberFormatException e) {
+            return new ParsedRow(null, "Invalid number: " + e.getMessage());
+        } catch (IllegalArgumentException e) {
+            return new ParsedRow(null, e.getMessage());
+        }
+    }
+
+    private void recordError(List<String> errors, long lineNumber, String message) {
+        if (errors.size() < MAX_REPORTED_ERRORS) {
+            errors.add(lineNumber > 0 ? "Line " + lineNumber + ": " + message : message);
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        boolean toStore = args.length == 2 && args[0].equals("--store");
+        if (args.length != 1 && !toStore) {
+            System.out.println("Usage: java ScheduleImporter [--store] <schedule.csv>");
+            return;
+        }
+        FlightStore store = toStore ? new FlightStore() : null;
+        ScheduleImportReport report = new ScheduleImporter().importFile(Path.of(args[args.length - 1]), store);
+        System.out.println(report);
+        report.errors().forEach(System.out::println);
+        if (store != null) {
+            System.out.printf("Flight store holds %,d flights%n", store.size());
+        }
+    }
+}
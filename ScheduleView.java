@@ -0,0 +1,108 @@
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+// Materialized flight schedule in departure order. Each flight's text row is rendered the first
+// time it is shown and kept until its seat count changes, when only that row is re-rendered,
+// so browsing costs no formatting for flights nobody booked. Pages are read with an opaque
+// cursor (departure and flight number of the last row), so fetching any page costs O(log n)
+// plus the page size however many flights exist.
+public class ScheduleView {
+    private record Rendered(int availableSeats, String text) {}
+
+    private static final class Row {
+        final Flight flight;
+        volatile Rendered rendered;
+
+        Row(Flight flight) {
+            this.flight = flight;
+        }
+
+        // Racing readers may both re-render a stale row; either result is current
+        String text() {
+            int seats = flight.getAvailableSeats();
+            Rendered current = rendered;
+            if (current == null || current.availableSeats() != seats) {
+                current = new Rendered(seats, ReportEngine.scheduleText(flight, seats));
+                rendered = current;
+            }
+            return current.text();
+        }
+    }
+
+    // One page of rows; nextCursor is null on the last page
+    public record Page(List<Flight> flights, List<String> rows, String nextCursor) {
+        public boolean hasNext() {
+            return nextCursor != null;
+        }
+    }
+
+    private final ConcurrentSkipListMap<DepartureKey, Row> rows = new ConcurrentSkipListMap<>();
+
+    public void add(Flight flight) {
+        rows.put(DepartureKey.of(flight), new Row(flight));
+    }
+
+    // A flight removed late must not take the row of a newer flight with the same number and time
+    public void remove(Flight flight) {
+        DepartureKey key = DepartureKey.of(flight);
+        Row row = rows.get(key);
+        if (row != null && row.flight == flight) {
+            rows.remove(key, row);
+        }
+    }
+
+    public int size() {
+        return rows.size();
+    }
+
+    // The page after the cursor, or the first page for a null or empty cursor
+    public Page page(String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException("Page size must be positive");
+        }
+        Iterator<Map.Entry<DepartureKey, Row>> entries = (cursor == null || cursor.isEmpty()
+                ? rows : rows.tailMap(parseCursor(cursor), false)).entrySet().iterator();
+        List<Flight> flights = new ArrayList<>(pageSize);
+        List<String> texts = new ArrayList<>(pageSize);
+        DepartureKey last = null;
+        while (flights.size() < pageSize && entries.hasNext()) {
+            Map.Entry<DepartureKey, Row> entry = entries.next();
+            flights.add(entry.getValue().flight);
+            texts.add(entry.getValue().text());
+            last = entry.getKey();
+        }
+        return new Page(flights, texts, entries.hasNext() ? cursorOf(last) : null);
+    }
+
+    // Every row in departure order, for full schedule reports
+    public void forEachRow(Consumer<String> action) {
+        for (Row row : rows.values()) {
+            action.accept(row.text());
+        }
+    }
+
+    public void forEachFlight(Consumer<Flight> action) {
+        for (Row row : rows.values()) {
+            action.accept(row.flight);
+        }
+    }
+
+    private static String cursorOf(DepartureKey key) {
+        return key.departureTime() + "/" + key.flightNumber();
+    }
+
+    private static DepartureKey parseCursor(String cursor) {
+        int split = cursor.lastIndexOf('/');
+        try {
+            if (split > 0) {
+                return new DepartureKey(LocalDateTime.parse(cursor.substring(0, split)), cursor.substring(split + 1));
+            }
+        } catch (DateTimeParseException e) {
+            // reported below
+        }
+        throw new IllegalArgumentException("Invalid schedule cursor");
+    }
+}
@@ -0,0 +1,163 @@
+import java.util.*;
+
+// Seat assignments for one flight: a bitset of taken seats plus the occupant of each seat.
+// Seats are numbered row by row, six abreast (A-F). Each 64-bit word holds ten whole rows in
+// its low 60 bits, so a block inside one row, or of up to ten seats across rows, never spans
+// words and is found with a few shifts and one bit scan per word. An empty map costs one bit
+// per seat. From the first booking on, each seat also records its occupant and the next seat
+// held by the same customer, so releasing a booking touches only that customer's seats.
+// Not thread-safe: Flight guards it with the passenger monitor every booking already holds.
+public class SeatMap {
+    public static final int SEATS_PER_ROW = 6;
+    private static final int ROWS_PER_WORD = 10;
+    private static final int SEATS_PER_WORD = SEATS_PER_ROW * ROWS_PER_WORD;
+    private static final long WORD_MASK = (1L << SEATS_PER_WORD) - 1;
+    private static final String SEAT_LETTERS = "ABCDEF";
+
+    // For a block of n seats, the bit positions where it can start without leaving its row
+    private static final long[] ROW_STARTS = new long[SEATS_PER_ROW + 1];
+    static {
+        for (int n = 1; n <= SEATS_PER_ROW; n++) {
+            for (int row = 0; row < ROWS_PER_WORD; row++) {
+                for (int seat = 0; seat + n <= SEATS_PER_ROW; seat++) {
+                    ROW_STARTS[n] |= 1L << (row * SEATS_PER_ROW + seat);
+                }
+            }
+        }
+    }
+
+    private final int seatCount;
+    private final long[] taken;
+    private Customer[] occupants;
+    private short[] nextSeat;                                   // chains each customer's seats, newest first
+    private final BookingLedger<Customer> newestSeat = new BookingLedger<>(); // seat + 1
+    private int freeSeats;
+
+    public SeatMap(int seatCount) {
+        if (seatCount < 0 || seatCount > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Seat count must be between 0-" + Short.MAX_VALUE);
+        }
+        this.seatCount = seatCount;
+        this.freeSeats = seatCount;
+        this.taken = new long[(seatCount + SEATS_PER_WORD - 1) / SEATS_PER_WORD];
+        int lastWordSeats = seatCount % SEATS_PER_WORD;
+        if (lastWordSeats != 0) {
+            // Seats past the end of the cabin are permanently taken
+            taken[taken.length - 1] = WORD_MASK & (-1L << lastWordSeats);
+        }
+    }
+
+    // Seats a party side by side in one row when possible; larger parties get a block from the
+    // front of a row. Any party that can't have that gets any contiguous block, even across a row
+    // break, before falling back to the lowest free seats.
+    // Returns how many were seated, fewer than asked only if the cabin is full.
+    public int assign(Customer customer, int count) {
+        int seats = Math.max(0, Math.min(count, freeSeats));
+        if (seats == 0) {
+            return 0;
+        }
+        if (occupants == null) {
+            occupants = new Customer[seatCount];
+            nextSeat = new short[seatCount];
+        }
+        int start = seats <= SEATS_PER_ROW
+                ? findBlock(seats, ROW_STARTS[seats])
+                : findBlock(seats, ROW_STARTS[SEATS_PER_ROW]); // from the front of a row
+        if (start < 0) {
+            start = findBlock(seats, WORD_MASK);
+        }
+        for (int i = 0; i < seats; i++) {
+            take(start >= 0 ? start + i : lowestFree(), customer);
+        }
+        return seats;
+    }
+
+    // Frees the customer's most recently assigned seats and returns how many were released
+    public int release(Customer customer, int count) {
+        int seat = newestSeat.get(customer) - 1;
+        int released = 0;
+        while (seat >= 0 && released < count) {
+            occupants[seat] = null;
+            taken[seat / SEATS_PER_WORD] &= ~(1L << (seat % SEATS_PER_WORD));
+            freeSeats++;
+            released++;
+            seat = nextSeat[seat];
+        }
+        setNewestSeat(customer, seat);
+        return released;
+    }
+
+    // The customer's seat numbers in ascending order
+    public int[] seatsOf(Customer customer) {
+        int[] seats = new int[seatCount];
+        int n = 0;
+        for (int seat = newestSeat.get(customer) - 1; seat >= 0; seat = nextSeat[seat]) {
+            seats[n++] = seat;
+        }
+        seats = Arrays.copyOf(seats, n);
+        Arrays.sort(seats);
+        return seats;
+    }
+
+    public Optional<Customer> occupantOf(int seat) {
+        Objects.checkIndex(seat, seatCount);
+        return Optional.ofNullable(occupants == null ? null : occupants[seat]);
+    }
+
+    public boolean isTaken(int seat) {
+        Objects.checkIndex(seat, seatCount);
+        return (taken[seat / SEATS_PER_WORD] & (1L << (seat % SEATS_PER_WORD))) != 0;
+    }
+
+    public int getFreeSeats() { return freeSeats; }
+    public int getSeatCount() { return seatCount; }
+
+    // "12C" for seat 68
+    public static String label(int seat) {
+        return (seat / SEATS_PER_ROW + 1) + String.valueOf(SEAT_LETTERS.charAt(seat % SEATS_PER_ROW));
+    }
+
+    // First seat of n adjacent free seats starting at one of the given positions, or -1.
+    // Per word, the free bits are ANDed with themselves shifted, so bit p survives only if
+    // seats p..p+n-1 are all free.
+    private int findBlock(int n, long starts) {
+        if (n > SEATS_PER_WORD) {
+            return -1;
+        }
+        for (int word = 0; word < taken.length; word++) {
+            long free = ~taken[word] & WORD_MASK;
+            long run = free;
+            for (int k = 1; k < n && run != 0; k++) {
+                run &= free >>> k;
+            }
+            run &= starts;
+            if (run != 0) {
+                return word * SEATS_PER_WORD + Long.numberOfTrailingZeros(run);
+            }
+        }
+        return -1;
+    }
+
+    private int lowestFree() {
+        for (int word = 0; word < taken.length; word++) {
+            long free = ~taken[word] & WORD_MASK;
+            if (free != 0) {
+                return word * SEATS_PER_WORD + Long.numberOfTrailingZeros(free);
+            }
+        }
+        throw new IllegalStateException("No free seats");
+    }
+
+    private void take(int seat, Customer customer) {
+        taken[seat / SEATS_PER_WORD] |= 1L << (seat % SEATS_PER_WORD);
+        occupants[seat] = customer;
+        nextSeat[seat] = (short) (newestSeat.get(customer) - 1);
+        setNewestSeat(customer, seat);
+        freeSeats--;
+    }
+
+    // The ledger drops a customer whose value reaches zero, i.e. who has no seats left
+    private void setNewestSeat(Customer customer, int seat) {
+        newestSeat.add(customer, seat + 1 - newestSeat.get(customer));
+    }
+}
@@ -0,0 +1,77 @@
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Login sessions keyed by an unguessable token, so repeated requests skip password hashing.
+// Sessions expire a fixed time after login; expired entries are dropped when looked up and
+// swept in bulk every SWEEP_INTERVAL logins.
+public class SessionCache {
+    private static final int TOKEN_BYTES = 24;
+    private static final int SWEEP_INTERVAL = 4096;
+
+    public record Session(String principal, RolesAndPermissions.Role role, long expiresAtNanos) {
+        boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final SecureRandom random = new SecureRandom();
+    private final Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
+    private final AtomicInteger loginsSinceSweep = new AtomicInteger();
+    private final long ttlNanos;
+
+    public SessionCache(Duration ttl) {
+        if (ttl.isNegative() || ttl.isZero()) {
+            throw new IllegalArgumentException("Session lifetime must be positive");
+        }
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    public String open(String principal, RolesAndPermissions.Role role) {
+        if (loginsSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+            loginsSinceSweep.set(0);
+            sweep();
+        }
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = encoder.encodeToString(bytes);
+        sessions.put(token, new Session(principal, role, System.nanoTime() + ttlNanos));
+        return token;
+    }
+
+    public Optional<Session> find(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        Session session = sessions.get(token);
+        if (session == null) {
+            return Optional.empty();
+        }
+        if (session.isExpired(System.nanoTime())) {
+            sessions.remove(token, session);
+            return Optional.empty();
+        }
+        return Optional.of(session);
+    }
+
+    public boolean close(String token) {
+        return token != null && sessions.remove(token) != null;
+    }
+
+    // Ends every session held by a principal, e.g. after its account is deleted
+    public void closeAll(String principal, RolesAndPermissions.Role role) {
+        sessions.values().removeIf(session -> session.role() == role && session.principal().equals(principal));
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    public void sweep() {
+        long now = System.nanoTime();
+        sessions.values().removeIf(session -> session.isExpired(now));
+    }
+}
@@ -0,0 +1,234 @@
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+
+// Alternative execution engine behind FlightReservation.book and cancel. Flights are
+// hash-partitioned by flight number across shards, and each shard is one thread draining a
+// bounded queue of commands. Every booking and cancellation for a flight therefore runs on the
+// same thread, and the flight's seat counter and monitors never see a competing booker.
+// A shard applies everything queued so far as one batch and journals it with a single
+// group-commit sync before completing the batch's futures, instead of one sync per booking.
+// When a shard's queue is full, submission waits up to the admission timeout and then reports
+// BUSY, so overload pushes back on callers instead of queueing without bound.
+// Waitlist joins and batch bookings keep running on the caller's thread; the model stays
+// thread-safe, so both paths can be mixed.
+public class ShardedBookingEngine implements AutoCloseable {
+    public static final int DEFAULT_QUEUE_CAPACITY = 4096;
+    public static final Duration DEFAULT_ADMISSION_TIMEOUT = Duration.ofMillis(50);
+    private static final int MAX_BATCH = 1024;
+    // 0 keeps bookings on the caller's thread
+    private static final int CONFIGURED_SHARDS = Integer.getInteger("airline.bookingShards", 0);
+
+    private enum Kind { BOOK, CANCEL, STOP }
+
+    private record Command(Kind kind, String flightNumber, String userId, int tickets, long startNanos,
+                           CompletableFuture<BookingStatus> result) {}
+
+    private static final Command STOP = new Command(Kind.STOP, null, null, 0, 0, null);
+
+    // Started on first use, and only when airline.bookingShards is set
+    private static final class Configured {
+        static final ShardedBookingEngine engine = new ShardedBookingEngine(CONFIGURED_SHARDS,
+                Integer.getInteger("airline.shardQueueCapacity", DEFAULT_QUEUE_CAPACITY), DEFAULT_ADMISSION_TIMEOUT);
+    }
+
+    private final FlightReservation reservation = new FlightReservation(null);
+    private final Shard[] shards;
+    private final long admissionNanos;
+    private volatile boolean closed;
+
+    public ShardedBookingEngine(int shardCount, int queueCapacity, Duration admissionTimeout) {
+        if (shardCount <= 0) {
+            throw new IllegalArgumentException("Shard count must be positive");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("Queue capacity must be positive");
+        }
+        this.admissionNanos = Math.max(0, admissionTimeout.toNanos());
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i, queueCapacity);
+        }
+    }
+
+    public static Optional<ShardedBookingEngine> configured() {
+        return CONFIGURED_SHARDS > 0 ? Optional.of(Configured.engine) : Optional.empty();
+    }
+
+    public CompletableFuture<BookingStatus> book(String flightNumber, int tickets, String userId) {
+        return submit(Kind.BOOK, flightNumber, userId, tickets);
+    }
+
+    public CompletableFuture<BookingStatus> cancel(String userId, String flightNumber, int tickets) {
+        return submit(Kind.CANCEL, flightNumber, userId, tickets);
+    }
+
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    // Commands waiting across all shards
+    public int getQueuedCommands() {
+        int queued = 0;
+        for (Shard shard : shards) {
+            queued += shard.queue.size();
+        }
+        return queued;
+    }
+
+    // Applies what is already queued, then stops the shard threads. A shard whose queue stays
+    // full is interrupted instead, and commands it had not started fail, as do any that race
+    // with shutdown.
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        for (Shard shard : shards) {
+            shard.stop();
+        }
+    }
+
+    private CompletableFuture<BookingStatus> submit(Kind kind, String flightNumber, String userId, int tickets) {
+        long start = System.nanoTime();
+        if (closed) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Booking engine is closed"));
+        }
+        Command command = new Command(kind, flightNumber, userId, tickets, start, new CompletableFuture<>());
+        boolean queued;
+        try {
+            queued = shardFor(flightNumber).queue.offer(command, admissionNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            queued = false;
+        }
+        if (!queued) {
+            Metrics.recordBooking(operationOf(kind), start, BookingStatus.BUSY);
+            return CompletableFuture.completedFuture(BookingStatus.BUSY);
+        }
+        // Queued behind STOP: unless the shard's final drain already took it, it is ours to fail
+        Shard shard = shardFor(flightNumber);
+        if (shard.stopped && shard.queue.remove(command)) {
+            failStopped(command);
+        }
+        return command.result();
+    }
+
+    private Shard shardFor(String flightNumber) {
+        if (flightNumber == null) {
+            return shards[0];
+        }
+        int hash = flightNumber.trim().toUpperCase(Locale.ROOT).hashCode();
+        return shards[Math.floorMod(hash ^ (hash >>> 16), shards.length)];
+    }
+
+    private static void failStopped(Command command) {
+        if (command.kind() != Kind.STOP) {
+            Metrics.record(operationOf(command.kind()), command.startNanos(), false);
+            command.result().completeExceptionally(new IllegalStateException("Booking engine is closed"));
+        }
+    }
+
+    private static boolean isChange(BookingStatus status) {
+        return status == BookingStatus.BOOKED || status == BookingStatus.CANCELLED;
+    }
+
+    private static Metrics.Operation operationOf(Kind kind) {
+        return kind == Kind.CANCEL ? Metrics.Operation.CANCEL : Metrics.Operation.BOOK;
+    }
+
+    private final class Shard {
+        final ArrayBlockingQueue<Command> queue;
+        final Thread thread;
+        volatile boolean stopped;
+
+        Shard(int index, int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+            this.thread = new Thread(this::run, "booking-shard-" + index);
+            this.thread.setDaemon(true);
+            this.thread.start();
+        }
+
+        void stop() {
+            try {
+                if (!queue.offer(STOP, Math.max(admissionNanos, DEFAULT_ADMISSION_TIMEOUT.toNanos()),
+                        TimeUnit.NANOSECONDS)) {
+                    thread.interrupt();
+                }
+                thread.join();
+            } catch (InterruptedException e) {
+                thread.interrupt();
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void run() {
+            List<Command> batch = new ArrayList<>(MAX_BATCH);
+            BookingStatus[] statuses = new BookingStatus[MAX_BATCH];
+            RuntimeException[] errors = new RuntimeException[MAX_BATCH];
+            boolean running = true;
+            while (running) {
+                try {
+                    batch.add(queue.take());
+                } catch (InterruptedException e) {
+                    if (closed) {
+                        break;
+                    }
+                    continue;
+                }
+                queue.drainTo(batch, MAX_BATCH - 1);
+
+                boolean changed = false;
+                for (int i = 0; i < batch.size(); i++) {
+                    statuses[i] = null;
+                    errors[i] = null;
+                    Command command = batch.get(i);
+                    try {
+                        switch (command.kind()) {
+                            case BOOK -> statuses[i] = reservation.applyBooking(command.flightNumber(),
+                                    command.tickets(), command.userId());
+                            case CANCEL -> statuses[i] = reservation.applyCancellation(command.userId(),
+                                    command.flightNumber(), command.tickets());
+                            case STOP -> running = false;
+                        }
+                    } catch (RuntimeException e) {
+                        errors[i] = e;
+                    }
+                    changed |= isChange(statuses[i]);
+                }
+
+                // One sync covers every change in the batch; if it fails, so do they
+                RuntimeException failure = null;
+                if (changed) {
+                    try {
+                        BookingJournal.sync();
+                    } catch (RuntimeException e) {
+                        failure = e;
+                    }
+                }
+                for (int i = 0; i < batch.size(); i++) {
+                    Command command = batch.get(i);
+                    if (command.kind() == Kind.STOP) {
+                        continue;
+                    }
+                    RuntimeException error = errors[i] != null ? errors[i] : isChange(statuses[i]) ? failure : null;
+                    if (error != null) {
+                        Metrics.record(operationOf(command.kind()), command.startNanos(), false);
+                        command.result().completeExceptionally(error);
+                    } else {
+                        Metrics.recordBooking(operationOf(command.kind()), command.startNanos(), statuses[i]);
+                        command.result().complete(statuses[i]);
+                    }
+                }
+                batch.clear();
+            }
+            stopped = true;
+            List<Command> remaining = new ArrayList<>();
+            queue.drainTo(remaining);
+            remaining.forEach(ShardedBookingEngine::failStopped);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Compares cold-start cost of rebuilding the model, replaying its journal and loading a snapshot.
+// Each mode runs in its own JVM, since the model is static:
+//   java StartupBenchmark generate <dir> <flights> <customers> <bookingsPerCustomer>
+//   java StartupBenchmark replay <dir>
+//   java StartupBenchmark load <dir>
+// Pre-size the heap (e.g. -Xms4g -Xmn1g) so heap growth does not dominate the figures.
+public class StartupBenchmark {
+    private static final String JOURNAL_FILE = "startup-benchmark.journal";
+    private static final String SNAPSHOT_FILE = "startup-benchmark.snapshot";
+
+    private static final String[][] ROUTES = {{"Karachi", "Bangkok"}, {"Bangkok", "Karachi"}};
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 5 && args[0].equals("generate")) {
+            generate(Path.of(args[1]), Integer.parseInt(args[2]),
+                    Integer.parseInt(args[3]), Integer.parseInt(args[4]));
+        } else if (args.length == 2 && args[0].equals("replay")) {
+            long start = System.nanoTime();
+            try (BookingJournal journal = BookingJournal.open(Path.of(args[1]).resolve(JOURNAL_FILE))) {
+                System.out.printf("Journal replay: %d ms (%d records)%n",
+                        elapsedMillis(start), journal.getReplayedRecords());
+            }
+        } else if (args.length == 2 && args[0].equals("load")) {
+            long start = System.nanoTime();
+            BookingSnapshot.Stats stats = BookingSnapshot.load(Path.of(args[1]).resolve(SNAPSHOT_FILE));
+            System.out.printf("Snapshot load: %d ms (%s)%n", elapsedMillis(start), stats);
+        } else {
+            System.out.println("Usage: java StartupBenchmark generate <dir> <flights> <customers> <bookingsPerCustomer>");
+            System.out.println("       java StartupBenchmark replay <dir>");
+            System.out.println("       java StartupBenchmark load <dir>");
+        }
+    }
+
+    // Builds the dataset directly (the rebuild figure) while journaling it, then snapshots it
+    private static void generate(Path directory, int flightCount, int customerCount, int bookingsPerCustomer)
+            throws IOException {
+        BookingJournal journal = BookingJournal.open(directory.resolve(JOURNAL_FILE));
+        Random random = new Random(42);
+        LocalDateTime firstDeparture = LocalDateTime.now().plusDays(1).withNano(0);
+        long start = System.nanoTime();
+
+        Flight[] flights = new Flight[flightCount];
+        for (int i = 0; i < flightCount; i++) {
+            String[] route = ROUTES[i % ROUTES.length];
+            flights[i] = new Flight(flightNumber(i), route[0], route[1], "A" + (i % 30 + 1),
+                    firstDeparture.plusMinutes(i), Duration.ofMinutes(265), 500);
+        }
+
+        // One shared hash: deriving a salted hash per account would dominate the run
+        String passwordHash = PasswordHasher.hash("password");
+        long bookings = 0;
+        for (int i = 0; i < customerCount; i++) {
+            Customer customer = new Customer(String.valueOf(i + 20000), "Customer " + i,
+                    "customer" + i + "@example.com", passwordHash, "0300" + (1000000 + i),
+                    "Street " + i, 18 + i % 60);
+            Customer.addCustomer(customer);
+            for (int b = 0; b < bookingsPerCustomer; b++) {
+                if (flights[random.nextInt(flightCount)].bookSeats(customer, 1 + random.nextInt(3))) {
+                    bookings++;
+                }
+            }
+        }
+        System.out.printf("Rebuild: %d ms (%d flights, %d customers, %d bookings)%n",
+                elapsedMillis(start), flightCount, customerCount, bookings);
+
+        // Closing the journal first keeps the full history on disk for the replay run
+        BookingJournal.sync();
+        journal.close();
+        BookingSnapshot.Stats stats = BookingSnapshot.write(directory.resolve(SNAPSHOT_FILE));
+        System.out.printf("Snapshot write: %s%n", stats);
+    }
+
+    // Maps 0..6.7M onto distinct "AA-1000" style numbers
+    private static String flightNumber(int i) {
+        int digits = 9000;
+        int letters = i / digits;
+        return String.format("%c%c-%d", (char) ('A' + letters / 26), (char) ('A' + letters % 26), 1000 + i % digits);
+    }
+
+    private static long elapsedMillis(long start) {
+        return (System.nanoTime() - start) / 1_000_000;
+    }
+}
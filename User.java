@@ -1,3 +1,9 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.time.LocalDate;
 import java.util.*;
 import java.util.function.Consumer;
 
@@ -5,9 +11,34 @@ public class User {
     private static final Scanner scanner = new Scanner(System.in);
     private static final RolesAndPermissions auth = new RolesAndPermissions();
     private static final FlightReservation reservation = new FlightReservation();
+    private static final Path JOURNAL_FILE = Path.of("bookings.journal");
+    private static final Path SNAPSHOT_FILE = Path.of("bookings.snapshot");
+    private static final Path ARCHIVE_FILE = Path.of("flights.archive");
+    private static final int SCHEDULE_PAGE_SIZE = 20;
 
     public static void main(String[] args) {
-        Flight.scheduleRandomFlights(15);
+        Metrics.registerMBeans();
+        openArchive();
+        loadSnapshot();
+        openJournal();
+        CustomerSearch.live().buildInBackground();
+        Flight.getArchiver().start();
+        if (Flight.getAllFlights().isEmpty()) {
+            Flight.scheduleRandomFlights(15);
+        }
+
+        // Headless mode: serve requests until the process is stopped
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : ReservationServer.DEFAULT_PORT;
+            try {
+                ReservationServer server = ReservationServer.start(new InetSocketAddress(port));
+                System.out.println("Reservation server listening on " + server.getAddress());
+            } catch (IOException e) {
+                System.out.println("Could not start reservation server: " + e.getMessage());
+                System.exit(1);
+            }
+            return;
+        }
 
         while (true) {
             displayMainMenu();
@@ -25,6 +56,66 @@ public class User {
         }
     }
 
+    private static void loadSnapshot() {
+        if (!Files.exists(SNAPSHOT_FILE)) {
+            return;
+        }
+        try {
+            System.out.println("Loaded snapshot: " + BookingSnapshot.load(SNAPSHOT_FILE));
+        } catch (IOException e) {
+            System.out.println("Snapshot unavailable, replaying journal only: " + e.getMessage());
+        }
+    }
+
+    private static void saveSnapshot() {
+        BookingSnapshot.writeInBackground(SNAPSHOT_FILE).whenComplete((stats, error) ->
+                System.out.println(error == null
+                        ? "\nSnapshot saved: " + stats
+                        : "\nSnapshot failed: " + error.getMessage()));
+        System.out.println("Snapshot started in the background");
+    }
+
+    private static void exportManifests() {
+        Path path = Path.of(getInput("Export file: "));
+        try (ReportEngine report = ReportEngine.open(path, ReportEngine.Format.CSV)) {
+            report.writeManifests(Flight.snapshotFlights());
+            System.out.println("Manifests exported to " + path);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Export failed: " + e.getMessage());
+        }
+    }
+
+    private static void dumpMetrics() {
+        Path path = Path.of(getInput("Metrics file: "));
+        try {
+            Metrics.dump(path);
+            System.out.println("Metrics written to " + path);
+        } catch (IOException | InvalidPathException e) {
+            System.out.println("Dump failed: " + e.getMessage());
+        }
+    }
+
+    // Opened before recovery so flights archived by the journal land in the persistent history
+    private static void openArchive() {
+        try {
+            FlightArchive archive = FlightArchive.open(ARCHIVE_FILE, FlightArchive.DEFAULT_RETENTION);
+            Flight.getArchiver().setArchive(archive);
+            System.out.printf("Loaded %d archived flights%n", archive.size());
+        } catch (IOException e) {
+            System.out.println("Flight archive unavailable, history will not be saved: " + e.getMessage());
+        }
+    }
+
+    private static void openJournal() {
+        try {
+            BookingJournal journal = BookingJournal.open(JOURNAL_FILE);
+            Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
+            System.out.printf("Restored %d journal records%n", journal.getReplayedRecords());
+        } catch (IOException e) {
+            System.out.println("Booking journal unavailable, changes will not be saved: " + e.getMessage());
+        }
+    }
+
     private static void handleAdminLogin() {
         String username = getInput("Username: ");
         String password = getInput("Password: ");
@@ -38,46 +129,128 @@ public class User {
     private static void adminMenu(String username) {
         System.out.printf("Welcome admin %s%n", username);
 
-        Map<Integer, Consumer<String>> menu = Map.of(
-                1, opt -> new Customer().register(),
-                2, opt -> searchCustomer(),
-                3, opt -> updateCustomer(),
-                4, opt -> deleteCustomer(),
-                5, opt -> Customer.getAllCustomers().forEach(System.out::println),
-                6, opt -> reservation.displayRegisteredUsersForAllFlight(),
-                7, opt -> deleteFlight(),
-                0, opt -> {}
+        Map<Integer, Consumer<String>> menu = Map.ofEntries(
+                Map.entry(1, opt -> new Customer().register()),
+                Map.entry(2, opt -> searchCustomer()),
+                Map.entry(3, opt -> updateCustomer()),
+                Map.entry(4, opt -> deleteCustomer()),
+                Map.entry(5, opt -> Customer.getAllCustomers().forEach(System.out::println)),
+                Map.entry(6, opt -> reservation.displayRegisteredUsersForAllFlight()),
+                Map.entry(7, opt -> deleteFlight()),
+                Map.entry(8, opt -> saveSnapshot()),
+                Map.entry(9, opt -> exportManifests()),
+                Map.entry(10, opt -> dumpMetrics()),
+                Map.entry(11, opt -> flightHistory()),
+                Map.entry(12, opt -> showAnalytics()),
+                Map.entry(13, opt -> closeAirport()),
+                Map.entry(0, opt -> {})
         );
 
+        int choice;
         do {
             displayAdminMenu(username);
-            int choice = getIntInput("Enter choice: ", 0, 7);
+            choice = getIntInput("Enter choice: ", 0, 13);
             menu.getOrDefault(choice, opt -> System.out.println("Invalid choice"))
                     .accept("");
-        } while (true);
+        } while (choice != 0);
     }
 
     private static void searchCustomer() {
-        String id = getInput("Enter customer ID: ");
-        Customer.getAllCustomers().stream()
-                .filter(c -> c.getUserID().equals(id))
-                .findFirst()
-                .ifPresentOrElse(
-                        System.out::println,
-                        () -> System.out.println("Customer not found")
-                );
+        String query = getInput("Search by ID, name, email or phone: ");
+        List<Customer> matches = Customer.findCustomer(query.trim())
+                .map(List::of)
+                .orElseGet(() -> CustomerSearch.live().search(query, CustomerSearch.DEFAULT_LIMIT));
+        if (matches.isEmpty()) {
+            System.out.println("No customers found");
+            return;
+        }
+        for (Customer customer : matches) {
+            System.out.printf("  %-12s %-25s %-30s %s%n", customer.getUserID(), customer.getName(),
+                    customer.getEmail(), customer.getPhone());
+        }
     }
 
     private static void updateCustomer() {
-        // Implementation for updating customer
+        String id = getInput("Enter customer ID: ");
+        Customer.findCustomer(id).ifPresentOrElse(
+                User::editProfile,
+                () -> System.out.println("Customer not found"));
     }
 
     private static void deleteCustomer() {
-        // Implementation for deleting customer
+        String id = getInput("Enter customer ID: ");
+        if (Customer.findCustomer(id).isEmpty()) {
+            System.out.println("Customer not found");
+            return;
+        }
+        if (confirm("Delete this customer and cancel all their bookings? (y/n): ")
+                && reservation.deleteCustomer(id)) {
+            System.out.println("Customer deleted");
+        }
     }
 
     private static void deleteFlight() {
-        // Implementation for deleting flight
+        String flightNo = getInput("Enter flight number: ");
+        if (Flight.findFlight(flightNo).isEmpty()) {
+            System.out.println("Flight not found");
+            return;
+        }
+        if (!confirm("Cancel this flight and all its bookings? (y/n): ")) {
+            return;
+        }
+        reservation.cancelFlight(flightNo).ifPresentOrElse(
+                passengers -> System.out.printf("Flight %s cancelled, %d passengers (%d tickets) affected%n",
+                        flightNo, passengers.size(), passengers.totalTickets()),
+                () -> System.out.println("Flight not found"));
+    }
+
+    private static void closeAirport() {
+        String city = getInput("Enter airport city: ");
+        int flights = Flight.getRouteIndex().flightsServing(city).size();
+        if (flights == 0) {
+            System.out.println("No flights scheduled at " + city);
+            return;
+        }
+        if (!confirm(String.format("Cancel %d flights from or to %s? (y/n): ", flights, city))) {
+            return;
+        }
+        Map<Flight, BookingLedger<Customer>> cancelled = reservation.cancelFlightsServing(city);
+        long tickets = 0;
+        for (BookingLedger<Customer> passengers : cancelled.values()) {
+            tickets += passengers.totalTickets();
+        }
+        System.out.printf("Cancelled %d flights, %d tickets refunded%n", cancelled.size(), tickets);
+    }
+
+    private static void flightHistory() {
+        String key = getInput("Enter flight number or customer ID: ");
+        FlightArchive archive = Flight.getArchiver().getArchive();
+        List<FlightArchive.ArchivedFlight> flights = archive.findByFlightNumber(key);
+        if (flights.isEmpty()) {
+            flights = archive.historyOf(key);
+        }
+        if (flights.isEmpty()) {
+            System.out.println("No archived flights found");
+            return;
+        }
+        flights.forEach(System.out::println);
+    }
+
+    private static void showAnalytics() {
+        FlightAnalytics analytics = FlightAnalytics.live();
+        System.out.println("Route load factors:");
+        for (FlightAnalytics.RouteLoad route : analytics.routeLoads()) {
+            System.out.printf("  %-15s -> %-15s | Flights: %-4d | Sold: %d/%d (%.1f%%)%n", route.fromCity(),
+                    route.toCity(), route.flights(), route.seatsSold(), route.seats(), route.loadFactor() * 100);
+        }
+        LocalDate today = LocalDate.now();
+        System.out.println("Seats sold by departure day, next 30 days:");
+        analytics.seatsSoldByDay(today, today.plusDays(30))
+                .forEach((day, sold) -> System.out.printf("  %s: %d%n", day, sold));
+        System.out.println("Top customers by tickets:");
+        for (FlightAnalytics.CustomerTickets customer : analytics.topCustomers(10)) {
+            System.out.printf("  %-12s %d%n", customer.userId(), customer.tickets());
+        }
     }
 
     private static void handleAdminRegistration() {
@@ -102,10 +275,7 @@ public class User {
     }
 
     private static void customerMenu(String userId) {
-        Customer customer = Customer.getAllCustomers().stream()
-                .filter(c -> c.getUserID().equals(userId))
-                .findFirst()
-                .orElseThrow();
+        Customer customer = Customer.findCustomer(userId).orElseThrow();
 
         System.out.printf("Welcome %s%n", customer.getName());
 
@@ -114,35 +284,120 @@ public class User {
                 2, opt -> updateCustomerProfile(userId),
                 3, opt -> deleteAccount(userId),
                 4, opt -> Flight.displayAllFlights(),
-                5, opt -> reservation.cancelFlight(userId),
+                5, opt -> cancelBooking(userId),
                 6, opt -> reservation.displayFlightsRegisteredByOneUser(userId),
+                7, opt -> showWaitlistPosition(userId),
+                8, opt -> leaveWaitlist(userId),
                 0, opt -> {}
         );
 
+        int choice;
         do {
             displayCustomerMenu(customer.getName());
-            int choice = getIntInput("Enter choice: ", 0, 6);
+            choice = getIntInput("Enter choice: ", 0, 8);
             menu.getOrDefault(choice, opt -> System.out.println("Invalid choice"))
                     .accept("");
-        } while (true);
+        } while (choice != 0 && Customer.findCustomer(userId).isPresent());
     }
 
     private static void bookFlight(String userId) {
-        Flight.displayAllFlights();
-        String flightNo = getInput("Enter flight number: ");
+        String flightNo = chooseFlight();
         int tickets = getIntInput("Enter tickets (1-10): ", 1, 10);
-        reservation.bookFlight(flightNo, tickets, userId);
+        if (reservation.bookFlight(flightNo, tickets, userId) == BookingStatus.SOLD_OUT
+                && confirm("Join the waitlist? (y/n): ")) {
+            reservation.joinWaitlist(flightNo, tickets, userId);
+        }
+    }
+
+    // Shows the schedule a page at a time until a flight number is entered
+    private static String chooseFlight() {
+        String cursor = null;
+        while (true) {
+            ScheduleView.Page page = Flight.getScheduleView().page(cursor, SCHEDULE_PAGE_SIZE);
+            try (ReportEngine report = ReportEngine.console()) {
+                report.writeSchedule(page);
+            } catch (IOException e) {
+                System.err.println("Report output failed: " + e.getMessage());
+            }
+            String input = getInput(page.hasNext()
+                    ? "Enter flight number (Enter for more flights): " : "Enter flight number: ");
+            if (!input.isBlank()) {
+                return input;
+            }
+            cursor = page.nextCursor(); // back to the first page after the last
+        }
+    }
+
+    private static void showWaitlistPosition(String userId) {
+        String flightNo = getInput("Enter flight number: ");
+        reservation.waitlistPosition(userId, flightNo).ifPresentOrElse(
+                position -> System.out.printf("Position %d on the waitlist for flight %s%n", position, flightNo),
+                () -> System.out.println("Not on the waitlist for this flight"));
+    }
+
+    private static void leaveWaitlist(String userId) {
+        String flightNo = getInput("Enter flight number: ");
+        System.out.println(reservation.leaveWaitlist(userId, flightNo)
+                ? "Left the waitlist" : "Not on the waitlist for this flight");
+    }
+
+    private static void cancelBooking(String userId) {
+        Customer customer = Customer.findCustomer(userId).orElseThrow();
+        if (customer.getBookingCount() == 0) {
+            System.out.println("No bookings to cancel");
+            return;
+        }
+
+        reservation.displayFlightsRegisteredByOneUser(userId);
+        String flightNo = getInput("Enter flight number to cancel: ");
+        int bookedTickets = Flight.findFlight(flightNo).map(customer::getTicketsFor).orElse(0);
+        if (bookedTickets == 0) {
+            System.out.println("No booking found for this flight");
+            return;
+        }
+
+        int tickets = getIntInput(String.format("Enter number of tickets to cancel (1-%d): ", bookedTickets),
+                1, bookedTickets);
+        switch (reservation.cancel(userId, flightNo, tickets)) {
+            case CANCELLED -> System.out.printf("Cancelled %d tickets on flight %s%n", tickets, flightNo);
+            case NOT_BOOKED -> System.out.println("Booking changed, please try again");
+            case BUSY -> System.out.println("System busy, please try again");
+            default -> System.out.println("Invalid flight number");
+        }
     }
 
     private static void updateCustomerProfile(String userId) {
-        // Implementation for updating profile
+        Customer.findCustomer(userId).ifPresent(User::editProfile);
+    }
+
+    // Blank answers keep the current value; nothing changes unless every answer is valid
+    private static void editProfile(Customer customer) {
+        String name = getInput("Name [" + customer.getName() + "]: ");
+        String email = getInput("Email [" + customer.getEmail() + "]: ");
+        String phone = getInput("Phone [" + customer.getPhone() + "]: ");
+        String address = getInput("Address [" + customer.getAddress() + "]: ");
+        try {
+            customer.updateProfile(name.isBlank() ? null : name, email.isBlank() ? null : email.trim(),
+                    phone.isBlank() ? null : phone.trim(), address.isBlank() ? null : address);
+            BookingJournal.sync();
+            System.out.println("Profile updated");
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+        }
     }
 
     private static void deleteAccount(String userId) {
-        // Implementation for deleting account
+        if (confirm("Delete your account and cancel all your bookings? (y/n): ")
+                && reservation.deleteCustomer(userId)) {
+            System.out.println("Account deleted");
+        }
     }
 
     // Helper methods
+    private static boolean confirm(String prompt) {
+        return getInput(prompt).trim().equalsIgnoreCase("y");
+    }
+
     private static String getInput(String prompt) {
         System.out.print(prompt);
         return scanner.nextLine();
@@ -181,6 +436,12 @@ public class User {
         System.out.println("5. List All Customers");
         System.out.println("6. View Flight Passengers");
         System.out.println("7. Delete Flight");
+        System.out.println("8. Save Snapshot");
+        System.out.println("9. Export Manifests (CSV)");
+        System.out.println("10. Dump Metrics");
+        System.out.println("11. Flight History");
+        System.out.println("12. Analytics");
+        System.out.println("13. Close Airport");
         System.out.println("0. Logout");
     }
 
@@ -192,6 +453,8 @@ public class User {
         System.out.println("4. View Flight Schedule");
         System.out.println("5. Cancel Booking");
         System.out.println("6. View My Bookings");
+        System.out.println("7. Waitlist Position");
+        System.out.println("8. Leave Waitlist");
         System.out.println("0. Logout");
     }
 
@@ -0,0 +1,248 @@
+import java.util.*;
+
+// Per-flight waitlist for sold-out requests, served by tier and then by arrival.
+// Seats freed by cancellations are handed here before they go back on sale. While anyone is
+// waiting they are held for the head of the line, topped up from the open seat pool, and a
+// request is promoted to a booking once its whole party fits. Promotion is strictly in line
+// order, so a large party at the head is not overtaken by smaller ones behind it.
+// Each tier is a FIFO of arrival slots with a Fenwick tree of live slots, so joining, leaving,
+// promoting and position lookups are all O(log n) with no rescans. The list lives in memory
+// only: after a restart held seats are back on sale and customers must rejoin.
+public class Waitlist {
+    public enum Tier { STANDARD, SILVER, GOLD }
+
+    private static final int INITIAL_LANE_CAPACITY = 8;
+
+    private final Flight flight;
+    private final Lane[] lanes = new Lane[Tier.values().length];
+    private final Map<Customer, Entry> entries = new IdentityHashMap<>();
+    private int heldSeats;
+
+    Waitlist(Flight flight) {
+        this.flight = flight;
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+    }
+
+    // Books straight away when nobody is waiting and the seats are there; otherwise queues the
+    // request. A customer already waiting keeps their place, so retries are harmless.
+    synchronized BookingStatus join(Customer customer, int tickets, Tier tier) {
+        if (flight.isClosed()) {
+            return BookingStatus.INVALID_FLIGHT;
+        }
+        if (entries.containsKey(customer)) {
+            return BookingStatus.WAITLISTED;
+        }
+        if (entries.isEmpty() && flight.tryReserveSeats(tickets)) {
+            if (flight.recordBooking(customer, tickets)) {
+                return BookingStatus.BOOKED;
+            }
+            flight.releaseSeats(tickets);
+            return flight.isClosed() ? BookingStatus.INVALID_FLIGHT : BookingStatus.INVALID_CUSTOMER;
+        }
+        Entry entry = new Entry(customer, tickets, tier);
+        lanes[tier.ordinal()].add(entry);
+        entries.put(customer, entry);
+        promote();
+        if (entries.get(customer) == entry) {
+            return BookingStatus.WAITLISTED;
+        }
+        if (flight.isClosed()) {
+            return BookingStatus.INVALID_FLIGHT;
+        }
+        return isDeleted(customer) ? BookingStatus.INVALID_CUSTOMER : BookingStatus.BOOKED;
+    }
+
+    public synchronized boolean leave(Customer customer) {
+        Entry entry = entries.get(customer);
+        if (entry == null) {
+            return false;
+        }
+        remove(entry);
+        // The next in line may fit the seats that were held for this one
+        promote();
+        return true;
+    }
+
+    // Seats given up on this flight; called outside the customer and passenger monitors
+    synchronized void release(int seats) {
+        heldSeats += seats;
+        promote();
+    }
+
+    // The flight was archived or cancelled: nobody can be booked any more, so the line is dropped
+    synchronized void close() {
+        entries.clear();
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new Lane();
+        }
+        if (heldSeats > 0) {
+            flight.releaseSeats(heldSeats);
+            heldSeats = 0;
+        }
+    }
+
+    // 1-based place in line, counting everyone in higher tiers ahead
+    public synchronized OptionalInt positionOf(Customer customer) {
+        Entry entry = entries.get(customer);
+        if (entry == null) {
+            return OptionalInt.empty();
+        }
+        int ahead = lanes[entry.tier.ordinal()].countBefore(entry);
+        for (int i = entry.tier.ordinal() + 1; i < lanes.length; i++) {
+            ahead += lanes[i].size;
+        }
+        return OptionalInt.of(ahead + 1);
+    }
+
+    public synchronized int getTicketsFor(Customer customer) {
+        Entry entry = entries.get(customer);
+        return entry == null ? 0 : entry.tickets;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized int getHeldSeats() {
+        return heldSeats;
+    }
+
+    // Books heads of line while their parties fit; returns held seats to sale once the line is empty
+    private void promote() {
+        Entry next;
+        while ((next = head()) != null) {
+            if (isDeleted(next.customer)) {
+                remove(next); // account deleted while waiting
+                continue;
+            }
+            if (heldSeats < next.tickets) {
+                heldSeats += flight.reserveUpTo(next.tickets - heldSeats);
+                if (heldSeats < next.tickets) {
+                    break;
+                }
+            }
+            heldSeats -= next.tickets;
+            remove(next);
+            if (!flight.recordBooking(next.customer, next.tickets)) {
+                heldSeats += next.tickets;
+                if (flight.isClosed()) {
+                    close();
+                    return;
+                }
+                // Only this customer is gone, deleted after the check above; the rest keep their places
+            }
+        }
+        if (entries.isEmpty() && heldSeats > 0) {
+            flight.releaseSeats(heldSeats);
+            heldSeats = 0;
+        }
+    }
+
+    // Deletion takes the customer out of the registry before marking it removed
+    private static boolean isDeleted(Customer customer) {
+        return Customer.findCustomer(customer.getUserID()).orElse(null) != customer || customer.isRemoved();
+    }
+
+    private Entry head() {
+        for (int i = lanes.length - 1; i >= 0; i--) {
+            Entry entry = lanes[i].peek();
+            if (entry != null) {
+                return entry;
+            }
+        }
+        return null;
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.customer);
+        lanes[entry.tier.ordinal()].remove(entry);
+    }
+
+    private static final class Entry {
+        final Customer customer;
+        final int tickets;
+        final Tier tier;
+        int slot;
+
+        Entry(Customer customer, int tickets, Tier tier) {
+            this.customer = customer;
+            this.tickets = tickets;
+            this.tier = tier;
+        }
+    }
+
+    // Arrival slots for one tier. Left entries become null holes that the head skips; when the
+    // slots run out, live entries are compacted to the front and the tree is rebuilt in O(n).
+    private static final class Lane {
+        private Entry[] slots = new Entry[INITIAL_LANE_CAPACITY];
+        private int[] tree = new int[INITIAL_LANE_CAPACITY + 1]; // Fenwick tree, 1-based
+        private int head;
+        private int tail;
+        private int size;
+
+        void add(Entry entry) {
+            if (tail == slots.length) {
+                compact();
+            }
+            entry.slot = tail;
+            slots[tail++] = entry;
+            update(entry.slot, 1);
+            size++;
+        }
+
+        void remove(Entry entry) {
+            slots[entry.slot] = null;
+            update(entry.slot, -1);
+            size--;
+        }
+
+        Entry peek() {
+            while (head < tail && slots[head] == null) {
+                head++;
+            }
+            return head < tail ? slots[head] : null;
+        }
+
+        // Live entries that arrived before this one
+        int countBefore(Entry entry) {
+            int count = 0;
+            for (int i = entry.slot; i > 0; i -= i & -i) {
+                count += tree[i];
+            }
+            return count;
+        }
+
+        private void update(int slot, int delta) {
+            for (int i = slot + 1; i < tree.length; i += i & -i) {
+                tree[i] += delta;
+            }
+        }
+
+        private void compact() {
+            Entry[] live = new Entry[Math.max(INITIAL_LANE_CAPACITY, size * 2)];
+            int n = 0;
+            for (int i = head; i < tail; i++) {
+                if (slots[i] != null) {
+                    slots[i].slot = n;
+                    live[n++] = slots[i];
+                }
+            }
+            int[] rebuilt = new int[live.length + 1];
+            for (int i = 1; i < rebuilt.length; i++) {
+                if (i <= n) {
+                    rebuilt[i]++;
+                }
+                int parent = i + (i & -i);
+                if (parent < rebuilt.length) {
+                    rebuilt[parent] += rebuilt[i];
+                }
+            }
+            slots = live;
+            tree = rebuilt;
+            head = 0;
+            tail = n;
+        }
+    }
+}
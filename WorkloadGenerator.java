@@ -0,0 +1,219 @@
+import java.time.LocalDateTime;
+import java.util.*;
+
+// Seeded synthetic workload: airports, flights and customers registered in the live model,
+// plus an operation stream mixing book, cancel, search and login.
+// Flight popularity follows a Zipf distribution, and an optional flash sale window sends
+// bookings to a handful of flights. The same spec always yields the same dataset and the same
+// operation at every index, so a run can be replayed exactly.
+public class WorkloadGenerator {
+    public enum OperationType { BOOK, CANCEL, SEARCH, LOGIN }
+
+    // Relative weights of each operation type
+    public record Mix(int book, int cancel, int search, int login) {
+        public Mix {
+            if (book < 0 || cancel < 0 || search < 0 || login < 0 || book + cancel + search + login == 0) {
+                throw new IllegalArgumentException("Mix weights must be non-negative and not all zero");
+            }
+        }
+
+        // Parses "book:70,cancel:15,search:10,login:5"; missing types weigh zero
+        public static Mix parse(String text) {
+            Map<OperationType, Integer> weights = new EnumMap<>(OperationType.class);
+            for (String part : text.split(",")) {
+                String[] pair = part.split(":");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Expected type:weight, got " + part);
+                }
+                weights.put(OperationType.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)),
+                        Integer.parseInt(pair[1].trim()));
+            }
+            return new Mix(weights.getOrDefault(OperationType.BOOK, 0), weights.getOrDefault(OperationType.CANCEL, 0),
+                    weights.getOrDefault(OperationType.SEARCH, 0), weights.getOrDefault(OperationType.LOGIN, 0));
+        }
+
+        int total() {
+            return book + cancel + search + login;
+        }
+
+        OperationType pick(int roll) {
+            if ((roll -= book) < 0) return OperationType.BOOK;
+            if ((roll -= cancel) < 0) return OperationType.CANCEL;
+            if ((roll -= search) < 0) return OperationType.SEARCH;
+            return OperationType.LOGIN;
+        }
+    }
+
+    // flashSaleShare of the operations, starting halfway through, book flashSaleFlights flights
+    public record Spec(long seed, int airports, int flights, int customers, long operations, Mix mix,
+                       double skew, double flashSaleShare, int flashSaleFlights) {
+        public Spec {
+            if (airports < 2 || flights < 1 || customers < 1 || operations < 0) {
+                throw new IllegalArgumentException("Need at least 2 airports, 1 flight and 1 customer");
+            }
+            if (skew < 0 || flashSaleShare < 0 || flashSaleShare > 1 || flashSaleFlights < 1) {
+                throw new IllegalArgumentException("Invalid skew or flash sale settings");
+            }
+        }
+    }
+
+    // For SEARCH, origin/destination name the route; for CANCEL, the flight is chosen at run time
+    public record Operation(OperationType type, int flight, int customer, int tickets, int origin, int destination) {}
+
+    public static final String PASSWORD = "password";
+    private static final int MAX_TICKETS = 4;
+    private static final int MAX_FLIGHTS = 26 * 26 * 9000;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private final Spec spec;
+    private final DistanceMatrix airports;
+    private final Flight[] flights;
+    private final int[] origins;
+    private final int[] destinations;
+    private final Customer[] customers;
+    private final double[] popularity; // cumulative Zipf weights by rank
+    private final int[] flightByRank;
+    private final long flashSaleStart;
+    private final long flashSaleEnd;
+
+    private WorkloadGenerator(Spec spec) {
+        if (spec.flights() > MAX_FLIGHTS) {
+            throw new IllegalArgumentException("At most " + MAX_FLIGHTS + " flights");
+        }
+        this.spec = spec;
+        RandomGenerator random = new RandomGenerator(spec.seed());
+        Random coordinates = new Random(spec.seed() ^ 0x5DEECE66DL);
+
+        String[] names = new String[spec.airports()];
+        double[] latitudes = new double[names.length];
+        double[] longitudes = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = String.format("City %05d", i);
+            latitudes[i] = coordinates.nextDouble() * 130 - 60;
+            longitudes[i] = coordinates.nextDouble() * 360 - 180;
+        }
+        airports = new DistanceMatrix(names, latitudes, longitudes);
+
+        LocalDateTime firstDeparture = LocalDateTime.now().plusDays(1).withMinute(0).withSecond(0).withNano(0);
+        flights = new Flight[spec.flights()];
+        origins = new int[flights.length];
+        destinations = new int[flights.length];
+        List<Flight> batch = new ArrayList<>();
+        for (int i = 0; i < flights.length; i++) {
+            int origin = coordinates.nextInt(names.length);
+            int destination = (origin + 1 + coordinates.nextInt(names.length - 1)) % names.length;
+            origins[i] = origin;
+            destinations[i] = destination;
+            flights[i] = Flight.createUnregistered(flightNumber(i), names[origin], names[destination],
+                    random.generateGate(), firstDeparture.plusMinutes(coordinates.nextInt(90 * 24 * 60)),
+                    airports.blockTime(origin, destination), random.generateSeats());
+            batch.add(flights[i]);
+            if (batch.size() == 16_384 || i == flights.length - 1) {
+                if (!Flight.registerAll(batch).isEmpty()) {
+                    throw new IllegalStateException("Workload flight numbers clash with existing flights");
+                }
+                batch.clear();
+            }
+        }
+
+        // One shared hash: deriving a salted hash per account would dominate setup
+        String passwordHash = PasswordHasher.hash(PASSWORD);
+        customers = new Customer[spec.customers()];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer(userId(i), "Load Customer " + i, email(i), passwordHash,
+                    "0300" + (1_000_000 + i % 9_000_000), "Street " + i, 18 + i % 60);
+            Customer.addCustomer(customers[i]);
+        }
+
+        // Popularity ranks are shuffled so the hottest flights are spread over the schedule
+        flightByRank = new int[flights.length];
+        for (int i = 0; i < flightByRank.length; i++) {
+            flightByRank[i] = i;
+        }
+        for (int i = flightByRank.length - 1; i > 0; i--) {
+            int j = coordinates.nextInt(i + 1);
+            int swap = flightByRank[i];
+            flightByRank[i] = flightByRank[j];
+            flightByRank[j] = swap;
+        }
+        popularity = new double[flights.length];
+        double sum = 0;
+        for (int rank = 0; rank < popularity.length; rank++) {
+            sum += 1.0 / Math.pow(rank + 1, spec.skew());
+            popularity[rank] = sum;
+        }
+
+        flashSaleStart = spec.operations() / 2;
+        flashSaleEnd = flashSaleStart + (long) (spec.operations() * spec.flashSaleShare());
+    }
+
+    // Creates and registers the dataset; flight numbers and user IDs must not already be taken
+    public static WorkloadGenerator build(Spec spec) {
+        return new WorkloadGenerator(spec);
+    }
+
+    // The index-th operation, derived from the seed and index alone
+    public Operation operation(long index) {
+        long state = mix(spec.seed() * GOLDEN_GAMMA + index);
+        OperationType type = spec.mix().pick((int) bounded(draw(state, 1), spec.mix().total()));
+        int customer = (int) bounded(draw(state, 2), customers.length);
+        int tickets = 1 + (int) bounded(draw(state, 3), MAX_TICKETS);
+
+        if (type == OperationType.BOOK && index >= flashSaleStart && index < flashSaleEnd) {
+            int rank = (int) bounded(draw(state, 4), Math.min(spec.flashSaleFlights(), flights.length));
+            return new Operation(type, flightByRank[rank], customer, tickets, -1, -1);
+        }
+        int flight = flightByRank[rankFor(unit(draw(state, 5)))];
+        return switch (type) {
+            case BOOK -> new Operation(type, flight, customer, tickets, -1, -1);
+            case SEARCH -> new Operation(type, flight, customer, 0, origins[flight], destinations[flight]);
+            default -> new Operation(type, -1, customer, 1, -1, -1);
+        };
+    }
+
+    public Spec getSpec() { return spec; }
+    public DistanceMatrix getAirports() { return airports; }
+    public Flight getFlight(int index) { return flights[index]; }
+    public Customer getCustomer(int index) { return customers[index]; }
+    public int getFlightCount() { return flights.length; }
+    public int getCustomerCount() { return customers.length; }
+
+    public static String email(int customer) {
+        return "load" + customer + "@example.com";
+    }
+
+    private int rankFor(double roll) {
+        int rank = Arrays.binarySearch(popularity, roll * popularity[popularity.length - 1]);
+        return Math.min(rank < 0 ? -rank - 1 : rank, popularity.length - 1);
+    }
+
+    // "AA-1000" upwards: 9000 numbers per letter pair
+    private static String flightNumber(int i) {
+        int prefix = i / 9000;
+        return "" + (char) ('A' + prefix / 26) + (char) ('A' + prefix % 26) + "-" + (1000 + i % 9000);
+    }
+
+    private static String userId(int customer) {
+        return String.valueOf(10_000_000L + customer);
+    }
+
+    // Independent value number `stream` of one operation's state
+    private static long draw(long state, int stream) {
+        return mix(state + stream * GOLDEN_GAMMA);
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long bounded(long random, long bound) {
+        return Math.floorMod(random, bound);
+    }
+
+    private static double unit(long random) {
+        return (random >>> 11) * 0x1.0p-53;
+    }
+}